@@ -0,0 +1,44 @@
+package com.codeandweb.tutorials;
+
+/**
+ * Builds {@link PhysicsExample} instances for the benchmarks.
+ */
+final class BenchmarkSupport {
+	/** The size of the pretend window, matching the default desktop window. */
+	static final int WIDTH = 640, HEIGHT = 480;
+
+	/** Steps taken after all fruit has been spawned and before the stepping benchmarks start measuring. */
+	static final int SETTLE_STEPS = 60;
+
+	/**
+	 * Steps measured per iteration by the stepping benchmarks. Each iteration starts from a new world, so every
+	 * iteration measures the same part of the pile's fall, however many iterations are run.
+	 */
+	static final int MEASURED_STEPS = 300;
+
+	private BenchmarkSupport () {
+	}
+
+	/**
+	 * @param count How much fruit to drop.
+	 * @param mix   Comma separated body names, as used in the {@code @Param}s.
+	 */
+	static PhysicsExample createExample (int count, String mix) {
+		return createExample(count, mix.split(","));
+	}
+
+	static PhysicsExample createExample (int count, String... fruitNames) {
+		HeadlessEnvironment.init();
+		PhysicsExample example = new PhysicsExample(count, fruitNames);
+		example.create();
+		example.resize(WIDTH, HEIGHT);
+
+		// the spawner only creates as much fruit per frame as its time budget
+		// allows, so play frames until all of it is in the world
+		while (!example.spawner.isDone()) {
+			example.updateSpawner(PhysicsExample.STEP_TIME);
+			example.stepWorld(PhysicsExample.STEP_TIME);
+		}
+		return example;
+	}
+}
@@ -0,0 +1,81 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.codeandweb.physicseditor.PhysicsShapeCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures creating one kind of fruit with {@link PhysicsShapeCache}, with
+ * {@link CompiledPhysicsBodies} and with a {@link BodyFactory}. The body is
+ * destroyed again in the same invocation so the world does not grow between
+ * iterations; the destroy is cheap next to building fixtures.
+ *
+ * Box2D only forgets destroyed fixtures in its broadphase during the next
+ * step, so every invocation ends with an empty step like the game's regular
+ * step would. Without it each destroy gets slower than the last.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class CreateBodyBenchmark {
+	@Param({"banana", "cherries", "orange", "crate"})
+	String name;
+
+	PhysicsExample example;
+	PhysicsShapeCache xmlBodies;
+	CompiledPhysicsBodies compiledBodies;
+
+	@Setup
+	public void setup () {
+		example = BenchmarkSupport.createExample(0, name);
+		xmlBodies = new PhysicsShapeCache("physics.xml");
+		compiledBodies = CompiledPhysicsBodies.load(Gdx.files.internal("physics.bin"));
+	}
+
+	@TearDown
+	public void tearDown () {
+		compiledBodies.dispose();
+		example.dispose();
+	}
+
+	@Benchmark
+	public Body createFromXml () {
+		Body body = xmlBodies.createBody(name, example.world, PhysicsExample.SCALE, PhysicsExample.SCALE);
+		example.world.destroyBody(body);
+		example.world.step(0, 0, 0);
+		return body;
+	}
+
+	@Benchmark
+	public Body createFromFactory () {
+		Body body = example.bodyFactory.create(name, example.world, PhysicsExample.SCALE, PhysicsExample.SCALE, 0, 0, 0);
+		example.world.destroyBody(body);
+		example.world.step(0, 0, 0);
+		return body;
+	}
+
+	@Benchmark
+	public Body createCompiled () {
+		Body body = compiledBodies.createBody(name, example.world, PhysicsExample.SCALE, PhysicsExample.SCALE);
+		example.world.destroyBody(body);
+		example.world.step(0, 0, 0);
+		return body;
+	}
+}
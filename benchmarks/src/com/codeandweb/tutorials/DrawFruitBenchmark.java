@@ -0,0 +1,59 @@
+package com.codeandweb.tutorials;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per-body part of a frame: reading every transform back from
+ * Box2D, placing each fruit's quad and batching the vertices. The GL calls go
+ * to {@link NoopGL20}, so this is purely the CPU side of drawing.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class DrawFruitBenchmark {
+	/** Steps taken before measuring so the bodies are spread out and rotated. */
+	static final int SETTLE_STEPS = 120;
+
+	@Param({"25", "250", "2500"})
+	int count;
+
+	@Param({"banana,cherries,orange", "orange", "crate"})
+	String mix;
+
+	PhysicsExample example;
+
+	@Setup
+	public void setup () {
+		example = BenchmarkSupport.createExample(count, mix);
+		for (int i = 0; i < SETTLE_STEPS; i++) {
+			example.stepWorld(PhysicsExample.STEP_TIME);
+		}
+	}
+
+	@TearDown
+	public void tearDown () {
+		example.dispose();
+	}
+
+	@Benchmark
+	public int drawFruit () {
+		example.drawFruit();
+		return example.batch.renderCalls;
+	}
+}
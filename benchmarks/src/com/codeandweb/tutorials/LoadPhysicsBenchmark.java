@@ -0,0 +1,47 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.Gdx;
+import com.codeandweb.physicseditor.PhysicsShapeCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures loading the body catalog at startup, from assets/physics.xml and
+ * from the compiled assets/physics.bin.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class LoadPhysicsBenchmark {
+	@Setup
+	public void setup () {
+		HeadlessEnvironment.init();
+	}
+
+	@Benchmark
+	public PhysicsShapeCache loadXml () {
+		return new PhysicsShapeCache("physics.xml");
+	}
+
+	@Benchmark
+	public CompiledPhysicsBodies loadCompiled () {
+		// checked against the XML, as the game does
+		CompiledPhysicsBodies bodies = CompiledPhysicsBodies.load(Gdx.files.internal("physics.bin"),
+			Gdx.files.internal("physics.xml"));
+		bodies.dispose();
+		return bodies;
+	}
+}
@@ -0,0 +1,48 @@
+package com.codeandweb.tutorials;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link PhysicsExample#loadSprites()}, which turns every atlas region
+ * into a scaled {@link com.badlogic.gdx.graphics.g2d.Sprite} and a
+ * {@link SpriteTemplate}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(3)
+public class LoadSpritesBenchmark {
+	PhysicsExample example;
+
+	@Setup
+	public void setup () {
+		example = BenchmarkSupport.createExample(0, PhysicsExample.FRUIT_NAMES);
+	}
+
+	@TearDown
+	public void tearDown () {
+		example.dispose();
+	}
+
+	@Benchmark
+	public int loadSprites () {
+		example.sprites.clear();
+		example.types.clear();
+		example.loadSprites();
+		return example.sprites.size();
+	}
+}
@@ -0,0 +1,84 @@
+package com.codeandweb.tutorials;
+
+import com.codeandweb.physicseditor.PhysicsShapeCache;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures one step of a {@link ShardedWorld}, including moving bodies
+ * between worlds and updating the ghosts. With one shard this is a plain
+ * single world; compare the shard counts to see how stepping scales with
+ * the cores of the machine.
+ *
+ * Like {@link WorldStepBenchmark}, every iteration builds new worlds, lets
+ * the bodies fall for {@link BenchmarkSupport#SETTLE_STEPS} steps and then
+ * measures the next {@link BenchmarkSupport#MEASURED_STEPS}, so iterations
+ * do not measure a pile that has already fallen asleep.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(3)
+public class ShardedStepBenchmark {
+	@Param({"250", "1000"})
+	int count;
+
+	@Param({"1", "2", "4", "8"})
+	int shards;
+
+	BodyFactory factory;
+	ForkJoinPool pool;
+	ShardedWorld world;
+
+	@Setup(Level.Trial)
+	public void setup () {
+		HeadlessEnvironment.init();
+		factory = new BodyFactory(new PhysicsShapeCache("physics.xml"));
+		pool = new ForkJoinPool(Math.min(shards, Runtime.getRuntime().availableProcessors()));
+	}
+
+	@Setup(Level.Iteration)
+	public void createWorld () {
+		world = ShardedSimulation.createWorld(factory, pool, count, shards, new Random(1));
+		for (int i = 0; i < BenchmarkSupport.SETTLE_STEPS; i++) stepOnce();
+	}
+
+	@TearDown(Level.Iteration)
+	public void disposeWorld () {
+		world.dispose();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown () {
+		factory.dispose();
+		pool.shutdown();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkSupport.MEASURED_STEPS)
+	public void step () {
+		for (int i = 0; i < BenchmarkSupport.MEASURED_STEPS; i++) stepOnce();
+	}
+
+	private void stepOnce () {
+		world.step(PhysicsExample.STEP_TIME, PhysicsExample.VELOCITY_ITERATIONS, PhysicsExample.POSITION_ITERATIONS);
+	}
+}
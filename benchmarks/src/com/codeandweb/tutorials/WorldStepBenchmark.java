@@ -0,0 +1,63 @@
+package com.codeandweb.tutorials;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a single {@code world.step} with the example's solver settings.
+ * The pile falls asleep once it settles, so stepping one world for as long as
+ * JMH likes would measure less and less work. Instead every iteration builds
+ * a new world, lets it fall for {@link BenchmarkSupport#SETTLE_STEPS} steps
+ * and then measures the next {@link BenchmarkSupport#MEASURED_STEPS}, so the
+ * result is the average step over the same part of the fall every time.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(3)
+public class WorldStepBenchmark {
+	@Param({"25", "250", "2500"})
+	int count;
+
+	@Param({"banana,cherries,orange", "orange", "crate"})
+	String mix;
+
+	PhysicsExample example;
+
+	@Setup(Level.Iteration)
+	public void setup () {
+		example = BenchmarkSupport.createExample(count, mix);
+		for (int i = 0; i < BenchmarkSupport.SETTLE_STEPS; i++) stepOnce();
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown () {
+		example.dispose();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BenchmarkSupport.MEASURED_STEPS)
+	public void step () {
+		for (int i = 0; i < BenchmarkSupport.MEASURED_STEPS; i++) stepOnce();
+	}
+
+	private void stepOnce () {
+		example.world.step(PhysicsExample.STEP_TIME, PhysicsExample.VELOCITY_ITERATIONS, PhysicsExample.POSITION_ITERATIONS);
+	}
+}
@@ -0,0 +1,220 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+import com.codeandweb.physicseditor.PhysicsShapeCache;
+
+import java.util.HashMap;
+
+/**
+ * Creates bodies from assets/physics.xml quickly, and many at a time.
+ *
+ * The first time a body is asked for at some scale, one is created the slow
+ * way with {@link CompiledPhysicsBodies} or {@link PhysicsShapeCache}, its
+ * body and fixture definitions are copied into a {@link Template}, and it is
+ * destroyed again. From then on every body with that name and scale reuses
+ * the template's definitions and ready-made native shapes, so no vertices
+ * are scaled again. Bodies are also created right where they belong instead
+ * of at the origin and then moved with {@link Body#setTransform(float, float, float)}.
+ */
+public class BodyFactory implements Disposable {
+    /**
+     * Everything needed to create one kind of body at one scale.
+     */
+    static class Template {
+        final String name;
+        final float scaleX;
+        final float scaleY;
+        final BodyDef bodyDef = new BodyDef();
+        final FixtureDef[] fixtureDefs;
+
+        Template(String name, float scaleX, float scaleY, Body prototype) {
+            this.name = name;
+            this.scaleX = scaleX;
+            this.scaleY = scaleY;
+
+            bodyDef.type = prototype.getType();
+            bodyDef.linearDamping = prototype.getLinearDamping();
+            bodyDef.angularDamping = prototype.getAngularDamping();
+            bodyDef.allowSleep = prototype.isSleepingAllowed();
+            bodyDef.bullet = prototype.isBullet();
+            bodyDef.fixedRotation = prototype.isFixedRotation();
+            bodyDef.gravityScale = prototype.getGravityScale();
+
+            Array<Fixture> fixtures = prototype.getFixtureList();
+            fixtureDefs = new FixtureDef[fixtures.size];
+            for (int i = 0; i < fixtures.size; i++) {
+                Fixture fixture = fixtures.get(i);
+                FixtureDef fixtureDef = new FixtureDef();
+                fixtureDef.density = fixture.getDensity();
+                fixtureDef.friction = fixture.getFriction();
+                fixtureDef.restitution = fixture.getRestitution();
+                fixtureDef.isSensor = fixture.isSensor();
+                fixtureDef.filter.set(fixture.getFilterData());
+                fixtureDef.shape = copy(fixture.getShape());
+                fixtureDefs[i] = fixtureDef;
+            }
+        }
+
+        void dispose() {
+            for (FixtureDef fixtureDef : fixtureDefs) {
+                fixtureDef.shape.dispose();
+            }
+        }
+    }
+
+    private final CompiledPhysicsBodies compiledBodies;
+    private final PhysicsShapeCache physicsBodies;
+
+    /**
+     * Every template built so far, by name. There is usually only one scale
+     * per name, so finding the right one in the array is quick.
+     */
+    private final HashMap<String, Array<Template>> templates = new HashMap<String, Array<Template>>();
+
+    /**
+     * @param compiledBodies Where to get bodies from the first time.
+     */
+    public BodyFactory(CompiledPhysicsBodies compiledBodies) {
+        this.compiledBodies = compiledBodies;
+        this.physicsBodies = null;
+    }
+
+    /**
+     * @param physicsBodies Where to get bodies from the first time.
+     */
+    public BodyFactory(PhysicsShapeCache physicsBodies) {
+        this.compiledBodies = null;
+        this.physicsBodies = physicsBodies;
+    }
+
+    /**
+     * Creates a body at its final position and rotation.
+     *
+     * @param name   The name of the body exactly as it appears in the XML.
+     * @param world  The world to create the body in.
+     * @param scaleX Multiplies the X coordinates of the shapes.
+     * @param scaleY Multiplies the Y coordinates of the shapes.
+     * @param x      The body's X position in meters.
+     * @param y      The body's Y position in meters.
+     * @param angle  The body's rotation in radians.
+     */
+    public Body create(String name, World world, float scaleX, float scaleY, float x, float y, float angle) {
+        return create(template(name, world, scaleX, scaleY), world, x, y, angle);
+    }
+
+    /**
+     * Creates many bodies of the same kind at once, from a template returned
+     * by {@link #template(String, World, float, float)}.
+     *
+     * @param transforms X, Y and rotation in radians of each body, one after
+     *                   the other.
+     * @param count      How many bodies to create from {@code transforms}.
+     * @param bodies     Where to store the created bodies.
+     * @param offset     Where in {@code bodies} to store the first one.
+     */
+    public void create(Template template, World world, float[] transforms, int count, Body[] bodies, int offset) {
+        for (int i = 0; i < count; i++) {
+            int t = i * 3;
+            bodies[offset + i] = create(template, world, transforms[t], transforms[t + 1], transforms[t + 2]);
+        }
+    }
+
+    /**
+     * Creates a body from a template returned by
+     * {@link #template(String, World, float, float)}.
+     */
+    public Body create(Template template, World world, float x, float y, float angle) {
+        BodyDef bodyDef = template.bodyDef;
+        bodyDef.position.set(x, y);
+        bodyDef.angle = angle;
+
+        Body body = world.createBody(bodyDef);
+        for (FixtureDef fixtureDef : template.fixtureDefs) {
+            body.createFixture(fixtureDef);
+        }
+        return body;
+    }
+
+    /**
+     * Finds the template for a body, building it if this is the first time
+     * the body is asked for at this scale.
+     */
+    public Template template(String name, World world, float scaleX, float scaleY) {
+        Array<Template> scales = templates.get(name);
+        if (scales == null) {
+            scales = new Array<Template>(false, 1);
+            templates.put(name, scales);
+        }
+
+        for (int i = 0; i < scales.size; i++) {
+            Template template = scales.get(i);
+            if (template.scaleX == scaleX && template.scaleY == scaleY) return template;
+        }
+
+        Body prototype = compiledBodies != null
+                ? compiledBodies.createBody(name, world, scaleX, scaleY)
+                : physicsBodies.createBody(name, world, scaleX, scaleY);
+        if (prototype == null) throw new GdxRuntimeException("No body named " + name);
+
+        Template template = new Template(name, scaleX, scaleY, prototype);
+        world.destroyBody(prototype);
+        scales.add(template);
+        return template;
+    }
+
+    /**
+     * Makes a copy of a fixture's shape that we own, so it stays valid after
+     * the fixture is destroyed.
+     */
+    static Shape copy(Shape shape) {
+        switch (shape.getType()) {
+            case Polygon: {
+                PolygonShape source = (PolygonShape) shape;
+                int count = source.getVertexCount();
+                float[] vertices = new float[count * 2];
+                Vector2 vertex = new Vector2();
+                for (int i = 0; i < count; i++) {
+                    source.getVertex(i, vertex);
+                    vertices[i * 2] = vertex.x;
+                    vertices[i * 2 + 1] = vertex.y;
+                }
+                PolygonShape polygon = new PolygonShape();
+                polygon.set(vertices);
+                return polygon;
+            }
+            case Circle: {
+                CircleShape source = (CircleShape) shape;
+                CircleShape circle = new CircleShape();
+                circle.setRadius(source.getRadius());
+                circle.setPosition(source.getPosition());
+                return circle;
+            }
+            default:
+                throw new GdxRuntimeException("Unsupported shape type: " + shape.getType());
+        }
+    }
+
+    /**
+     * Frees the native shapes of every template.
+     */
+    @Override
+    public void dispose() {
+        for (Array<Template> scales : templates.values()) {
+            for (Template template : scales) {
+                template.dispose();
+            }
+        }
+        templates.clear();
+    }
+}
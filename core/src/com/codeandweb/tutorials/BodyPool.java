@@ -0,0 +1,122 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.World;
+
+import java.util.Arrays;
+
+/**
+ * Keeps bodies that are no longer needed so they can be used again, one
+ * stack per type id. A body in the pool is deactivated: it stays in the
+ * world, but Box2D takes it out of the broadphase and does not simulate it.
+ * Bringing it back only moves it and switches it on again, which is much
+ * quicker than creating its fixtures from scratch.
+ *
+ * The pool holds at most a fixed number of bodies per type. Bodies freed
+ * beyond that are destroyed, so the world never holds more bodies than the
+ * most that were alive at once plus the pool.
+ */
+public class BodyPool {
+    private final int maxPerType;
+    private Body[][] free = new Body[8][];
+    private int[] sizes = new int[8];
+
+    /**
+     * How many bodies {@link #obtain(int, float, float, float)} has handed
+     * out again instead of them having to be created.
+     */
+    long recycled;
+
+    /**
+     * How many bodies {@link #free(int, Body, World)} destroyed because the
+     * pool for their type was full.
+     */
+    long destroyed;
+
+    /**
+     * @param maxPerType How many bodies of each type to keep at most.
+     */
+    public BodyPool(int maxPerType) {
+        this.maxPerType = maxPerType;
+    }
+
+    /**
+     * Takes a body of this type out of the pool and brings it back to life
+     * at the given position, at rest and awake.
+     *
+     * @return The body, or null if there was none of this type.
+     */
+    public Body obtain(int type, float x, float y, float angle) {
+        if (type >= sizes.length || sizes[type] == 0) return null;
+
+        Body[] bodies = free[type];
+        int last = --sizes[type];
+        Body body = bodies[last];
+        bodies[last] = null;
+
+        // move it while it is still inactive, so the broadphase only sees it
+        // once it is where it belongs
+        body.setTransform(x, y, angle);
+        body.setLinearVelocity(0, 0);
+        body.setAngularVelocity(0);
+        body.setActive(true);
+        body.setAwake(true);
+        recycled++;
+        return body;
+    }
+
+    /**
+     * Puts a body that is no longer needed into the pool, or destroys it if
+     * the pool for its type is full.
+     */
+    public void free(int type, Body body, World world) {
+        if (type >= sizes.length) {
+            int capacity = Math.max(type + 1, sizes.length * 2);
+            free = Arrays.copyOf(free, capacity);
+            sizes = Arrays.copyOf(sizes, capacity);
+        }
+
+        int size = sizes[type];
+        if (size == maxPerType) {
+            world.destroyBody(body);
+            destroyed++;
+            return;
+        }
+
+        // the whole stack at once, so bodies freed later in the game do not
+        // make it grow
+        Body[] bodies = free[type];
+        if (bodies == null) bodies = free[type] = new Body[maxPerType];
+
+        body.setActive(false);
+        bodies[size] = body;
+        sizes[type] = size + 1;
+    }
+
+    /**
+     * @return How many bodies are waiting in the pool, of all types.
+     */
+    public int getPooled() {
+        int pooled = 0;
+        for (int size : sizes) pooled += size;
+        return pooled;
+    }
+
+    /**
+     * @return How many bodies of this type are waiting in the pool.
+     */
+    public int getPooled(int type) {
+        return type < sizes.length ? sizes[type] : 0;
+    }
+
+    /**
+     * Forgets every pooled body without destroying it, for when the world
+     * they belong to is being disposed.
+     */
+    public void clear() {
+        for (int type = 0; type < sizes.length; type++) {
+            if (free[type] != null) Arrays.fill(free[type], 0, sizes[type], null);
+            sizes[type] = 0;
+        }
+    }
+}
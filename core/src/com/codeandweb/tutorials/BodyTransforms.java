@@ -0,0 +1,175 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.Transform;
+
+import java.util.Arrays;
+
+/**
+ * Remembers where a set of bodies were after the last two physics steps, so
+ * they can be drawn somewhere in between. Physics runs at a fixed rate that
+ * rarely matches the display, and drawing the latest position every frame
+ * makes the motion stutter whenever a frame gets zero or two steps. Drawing
+ * the blended position instead keeps motion smooth, even when physics runs
+ * at 30 Hz and the screen at 60 Hz or more.
+ *
+ * Every call into a {@link Body} crosses from Java into native Box2D, which
+ * is slow compared to reading an array. So the bodies are read exactly once
+ * per step, in {@link #capture(Body[], int)}, with a single
+ * {@link Body#getTransform()} call each. Everything else, drawing included,
+ * reads the snapshot instead of the bodies.
+ *
+ * A snapshot is one float array holding x, y and angle for each body back to
+ * back, so the values for one body sit next to each other in memory.
+ */
+public class BodyTransforms {
+    /**
+     * How many floats each body takes up in a snapshot.
+     */
+    public static final int STRIDE = 3;
+
+    private static final int X = 0, Y = 1, ANGLE = 2;
+
+    float[] previous;
+    float[] current;
+
+    /**
+     * @param capacity How many bodies will be tracked.
+     */
+    public BodyTransforms(int capacity) {
+        previous = new float[capacity * STRIDE];
+        current = new float[capacity * STRIDE];
+    }
+
+    /**
+     * @return How many bodies fit before the arrays have to grow.
+     */
+    public int getCapacity() {
+        return current.length / STRIDE;
+    }
+
+    /**
+     * Makes room for at least {@code capacity} bodies, keeping what is stored.
+     */
+    public void ensureCapacity(int capacity) {
+        if (capacity * STRIDE <= current.length) return;
+        previous = Arrays.copyOf(previous, capacity * STRIDE);
+        current = Arrays.copyOf(current, capacity * STRIDE);
+    }
+
+    /**
+     * Copies what is stored for the first {@code count} bodies of
+     * {@code other} into this, growing it if needed.
+     */
+    public void set(BodyTransforms other, int count) {
+        ensureCapacity(count);
+        System.arraycopy(other.previous, 0, previous, 0, count * STRIDE);
+        System.arraycopy(other.current, 0, current, 0, count * STRIDE);
+    }
+
+    /**
+     * Copies what is stored for body {@code from} over body {@code to}.
+     */
+    public void move(int from, int to) {
+        System.arraycopy(previous, from * STRIDE, previous, to * STRIDE, STRIDE);
+        System.arraycopy(current, from * STRIDE, current, to * STRIDE, STRIDE);
+    }
+
+    /**
+     * Stores where one body is now as both its previous and its current
+     * transform, for a body that was just created.
+     */
+    public void reset(int i, Body body) {
+        float[] values = body.getTransform().vals;
+        int offset = i * STRIDE;
+        current[offset + X] = previous[offset + X] = values[Transform.POS_X];
+        current[offset + Y] = previous[offset + Y] = values[Transform.POS_Y];
+        current[offset + ANGLE] = previous[offset + ANGLE] = MathUtils.atan2(values[Transform.SIN], values[Transform.COS]);
+    }
+
+    /**
+     * Call this after every physics step. The current transforms become the
+     * previous ones, and the bodies' new transforms become current.
+     */
+    public void capture(Body[] bodies, int count) {
+        float[] swap = previous;
+        previous = current;
+        current = swap;
+
+        float[] current = this.current;
+        for (int i = 0, offset = 0; i < count; i++, offset += STRIDE) {
+            // one native call returns both the position and the rotation
+            float[] values = bodies[i].getTransform().vals;
+            current[offset + X] = values[Transform.POS_X];
+            current[offset + Y] = values[Transform.POS_Y];
+            current[offset + ANGLE] = MathUtils.atan2(values[Transform.SIN], values[Transform.COS]);
+        }
+    }
+
+    /**
+     * @return The X position in meters of body {@code i} after the last step.
+     */
+    public float getX(int i) {
+        return current[i * STRIDE + X];
+    }
+
+    /**
+     * @return The Y position in meters of body {@code i} after the last step.
+     */
+    public float getY(int i) {
+        return current[i * STRIDE + Y];
+    }
+
+    /**
+     * @return The rotation in radians, between -PI and PI, of body {@code i}
+     * after the last step.
+     */
+    public float getAngle(int i) {
+        return current[i * STRIDE + ANGLE];
+    }
+
+    /**
+     * @return Whether body {@code i} did not move at all during the last step,
+     * which is the case for every sleeping body.
+     */
+    public boolean isResting(int i) {
+        int offset = i * STRIDE;
+        return previous[offset + X] == current[offset + X]
+                && previous[offset + Y] == current[offset + Y]
+                && previous[offset + ANGLE] == current[offset + ANGLE];
+    }
+
+    /**
+     * @param alpha How far we are between the previous and the current step,
+     *              see {@link FixedTimestep#getAlpha()}.
+     * @return The X position in meters of body {@code i}.
+     */
+    public float getX(int i, float alpha) {
+        int offset = i * STRIDE + X;
+        return previous[offset] + (current[offset] - previous[offset]) * alpha;
+    }
+
+    /**
+     * @return The Y position in meters of body {@code i}.
+     */
+    public float getY(int i, float alpha) {
+        int offset = i * STRIDE + Y;
+        return previous[offset] + (current[offset] - previous[offset]) * alpha;
+    }
+
+    /**
+     * Blends the rotation the short way around, so a body turning past PI
+     * does not appear to spin all the way back.
+     *
+     * @return The rotation in radians of body {@code i}.
+     */
+    public float getAngle(int i, float alpha) {
+        int offset = i * STRIDE + ANGLE;
+        float from = previous[offset];
+        float change = current[offset] - from;
+        if (change > MathUtils.PI) change -= MathUtils.PI2;
+        else if (change < -MathUtils.PI) change += MathUtils.PI2;
+        return from + change * alpha;
+    }
+}
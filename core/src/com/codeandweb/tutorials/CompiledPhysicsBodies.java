@@ -0,0 +1,357 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * The bodies from assets/physics.xml, compiled into a compact binary file by
+ * {@link PhysicsBodyCompiler} when the game is built. Loading it only copies
+ * numbers out of a buffer, where {@link com.codeandweb.physicseditor.PhysicsShapeCache}
+ * has to parse the XML and every vertex string in it on each launch.
+ *
+ * The vertices are stored already multiplied by the scale they were compiled
+ * for, so bodies created at that scale use them as they are.
+ *
+ * The file starts with {@link #MAGIC}, {@link #VERSION}, the
+ * {@link #checksum(FileHandle) checksum} of the XML it was compiled from, the
+ * scale and the number of bodies. Each body is its name, type, flags, damping and fixtures;
+ * each fixture is its material, filter and a list of polygons and circles.
+ */
+public class CompiledPhysicsBodies implements Disposable {
+    /**
+     * "PEBB", for PhysicsEditor binary bodies.
+     */
+    static final int MAGIC = 0x50454242;
+
+    /**
+     * Bump this whenever the layout changes, so old files are not misread.
+     */
+    static final int VERSION = 2;
+
+    static final byte SHAPE_POLYGON = 0;
+    static final byte SHAPE_CIRCLE = 1;
+
+    static final Charset UTF8 = Charset.forName("UTF-8");
+
+    static final byte FLAG_ALLOW_SLEEP = 1;
+    static final byte FLAG_BULLET = 2;
+    static final byte FLAG_FIXED_ROTATION = 4;
+
+    /**
+     * One body, as described in the XML.
+     */
+    static class BodyData {
+        String name;
+        BodyDef.BodyType type;
+        byte flags;
+        float linearDamping;
+        float angularDamping;
+        FixtureData[] fixtures;
+    }
+
+    /**
+     * One fixture of a body. Its polygons and circles all share the same
+     * material and filter.
+     */
+    static class FixtureData {
+        float density;
+        float friction;
+        float restitution;
+        boolean sensor;
+        short categoryBits;
+        short maskBits;
+        short groupIndex;
+
+        /**
+         * Each polygon's vertices as x, y pairs.
+         */
+        float[][] polygons;
+
+        /**
+         * Each circle as x, y and radius.
+         */
+        float[] circles;
+    }
+
+    /**
+     * The {@link #checksum(FileHandle) checksum} of the XML this was compiled
+     * from.
+     */
+    final int sourceChecksum;
+    final float scaleX;
+    final float scaleY;
+    final HashMap<String, BodyData> bodies = new HashMap<String, BodyData>();
+
+    // reused for every body we create, Box2D copies what it needs from them
+    private final BodyDef bodyDef = new BodyDef();
+    private final FixtureDef fixtureDef = new FixtureDef();
+    private final PolygonShape polygon = new PolygonShape();
+    private final CircleShape circle = new CircleShape();
+    private final Vector2 position = new Vector2();
+    private float[] scaled = new float[16];
+
+    CompiledPhysicsBodies(int sourceChecksum, float scaleX, float scaleY, List<BodyData> bodies) {
+        this.sourceChecksum = sourceChecksum;
+        this.scaleX = scaleX;
+        this.scaleY = scaleY;
+        for (BodyData body : bodies) {
+            this.bodies.put(body.name, body);
+        }
+    }
+
+    /**
+     * Loads a file written by {@link PhysicsBodyCompiler}. On the desktop the
+     * file is memory-mapped; where that is not possible, such as inside an
+     * Android APK, it is read into a direct buffer instead.
+     *
+     * @throws GdxRuntimeException If the file is not a compiled body file, or
+     *                             was compiled by a different version.
+     */
+    public static CompiledPhysicsBodies load(FileHandle file) {
+        ByteBuffer buffer;
+        try {
+            buffer = file.map();
+        } catch (GdxRuntimeException e) {
+            byte[] bytes = file.readBytes();
+            buffer = ByteBuffer.allocateDirect(bytes.length);
+            buffer.put(bytes);
+            buffer.flip();
+        }
+        // written by a DataOutputStream, which is always big-endian
+        buffer.order(ByteOrder.BIG_ENDIAN);
+        try {
+            return read(buffer);
+        } catch (BufferUnderflowException e) {
+            throw new GdxRuntimeException("Truncated physics body file: " + file, e);
+        }
+    }
+
+    /**
+     * Loads a file written by {@link PhysicsBodyCompiler}, and makes sure it
+     * was compiled from {@code source} as it is now.
+     *
+     * @throws GdxRuntimeException If the file cannot be loaded, or was
+     *                             compiled from a different version of
+     *                             {@code source}.
+     */
+    public static CompiledPhysicsBodies load(FileHandle file, FileHandle source) {
+        CompiledPhysicsBodies bodies = load(file);
+        if (bodies.sourceChecksum != checksum(source)) {
+            bodies.dispose();
+            throw new GdxRuntimeException(file + " is out of date, " + source + " has changed since it was compiled");
+        }
+        return bodies;
+    }
+
+    /**
+     * A CRC-32 of the file's bytes. Reading and summing the XML is much
+     * quicker than parsing it, and unlike the modification time it also
+     * works for files packed into an Android APK.
+     */
+    static int checksum(FileHandle file) {
+        CRC32 crc = new CRC32();
+        crc.update(file.readBytes());
+        return (int) crc.getValue();
+    }
+
+    static CompiledPhysicsBodies read(ByteBuffer in) {
+        if (in.getInt() != MAGIC) throw new GdxRuntimeException("Not a compiled physics body file");
+        int version = in.getInt();
+        if (version != VERSION) {
+            throw new GdxRuntimeException("Compiled physics body file has version " + version + ", expected " + VERSION);
+        }
+
+        int sourceChecksum = in.getInt();
+        float scaleX = in.getFloat();
+        float scaleY = in.getFloat();
+        int bodyCount = in.getInt();
+        List<BodyData> bodies = new ArrayList<BodyData>(bodyCount);
+
+        for (int b = 0; b < bodyCount; b++) {
+            BodyData body = new BodyData();
+            byte[] name = new byte[in.getShort()];
+            in.get(name);
+            body.name = new String(name, UTF8);
+            body.type = BodyDef.BodyType.values()[in.get()];
+            body.flags = in.get();
+            body.linearDamping = in.getFloat();
+            body.angularDamping = in.getFloat();
+            body.fixtures = new FixtureData[in.getInt()];
+
+            for (int f = 0; f < body.fixtures.length; f++) {
+                FixtureData fixture = new FixtureData();
+                fixture.density = in.getFloat();
+                fixture.friction = in.getFloat();
+                fixture.restitution = in.getFloat();
+                fixture.sensor = in.get() != 0;
+                fixture.categoryBits = in.getShort();
+                fixture.maskBits = in.getShort();
+                fixture.groupIndex = in.getShort();
+
+                fixture.polygons = new float[in.getInt()][];
+                for (int p = 0; p < fixture.polygons.length; p++) {
+                    float[] vertices = new float[in.getInt()];
+                    in.asFloatBuffer().get(vertices);
+                    in.position(in.position() + vertices.length * 4);
+                    fixture.polygons[p] = vertices;
+                }
+
+                fixture.circles = new float[in.getInt() * 3];
+                in.asFloatBuffer().get(fixture.circles);
+                in.position(in.position() + fixture.circles.length * 4);
+
+                body.fixtures[f] = fixture;
+            }
+            bodies.add(body);
+        }
+        return new CompiledPhysicsBodies(sourceChecksum, scaleX, scaleY, bodies);
+    }
+
+    /**
+     * Writes bodies in the format {@link #read(ByteBuffer)} expects.
+     *
+     * @param sourceChecksum The {@link #checksum(FileHandle) checksum} of the
+     *                       XML the bodies were parsed from.
+     */
+    static void write(DataOutputStream out, int sourceChecksum, float scaleX, float scaleY, List<BodyData> bodies)
+            throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(sourceChecksum);
+        out.writeFloat(scaleX);
+        out.writeFloat(scaleY);
+        out.writeInt(bodies.size());
+
+        for (BodyData body : bodies) {
+            byte[] name = body.name.getBytes(UTF8);
+            out.writeShort(name.length);
+            out.write(name);
+            out.writeByte(body.type.ordinal());
+            out.writeByte(body.flags);
+            out.writeFloat(body.linearDamping);
+            out.writeFloat(body.angularDamping);
+            out.writeInt(body.fixtures.length);
+
+            for (FixtureData fixture : body.fixtures) {
+                out.writeFloat(fixture.density);
+                out.writeFloat(fixture.friction);
+                out.writeFloat(fixture.restitution);
+                out.writeByte(fixture.sensor ? 1 : 0);
+                out.writeShort(fixture.categoryBits);
+                out.writeShort(fixture.maskBits);
+                out.writeShort(fixture.groupIndex);
+
+                out.writeInt(fixture.polygons.length);
+                for (float[] vertices : fixture.polygons) {
+                    out.writeInt(vertices.length);
+                    for (float value : vertices) out.writeFloat(value);
+                }
+
+                out.writeInt(fixture.circles.length / 3);
+                for (float value : fixture.circles) out.writeFloat(value);
+            }
+        }
+    }
+
+    /**
+     * @return Whether a body with this name was compiled.
+     */
+    public boolean has(String name) {
+        return bodies.containsKey(name);
+    }
+
+    /**
+     * Creates a body the same way
+     * {@link com.codeandweb.physicseditor.PhysicsShapeCache#createBody(String, World, float, float)}
+     * does. Vertices only need to be multiplied again when the scale differs
+     * from the one the file was compiled for.
+     *
+     * @param name   The name of the body exactly as it appears in the XML.
+     * @param world  The world to create the body in.
+     * @param scaleX Multiplies the X coordinates of the shapes.
+     * @param scaleY Multiplies the Y coordinates of the shapes.
+     * @return A Box2D {@link Body} at the origin.
+     */
+    public Body createBody(String name, World world, float scaleX, float scaleY) {
+        BodyData data = bodies.get(name);
+        if (data == null) throw new GdxRuntimeException("No compiled body named " + name);
+
+        float ratioX = scaleX / this.scaleX;
+        float ratioY = scaleY / this.scaleY;
+
+        bodyDef.type = data.type;
+        bodyDef.allowSleep = (data.flags & FLAG_ALLOW_SLEEP) != 0;
+        bodyDef.bullet = (data.flags & FLAG_BULLET) != 0;
+        bodyDef.fixedRotation = (data.flags & FLAG_FIXED_ROTATION) != 0;
+        bodyDef.linearDamping = data.linearDamping;
+        bodyDef.angularDamping = data.angularDamping;
+        Body body = world.createBody(bodyDef);
+
+        for (FixtureData fixture : data.fixtures) {
+            fixtureDef.density = fixture.density;
+            fixtureDef.friction = fixture.friction;
+            fixtureDef.restitution = fixture.restitution;
+            fixtureDef.isSensor = fixture.sensor;
+            fixtureDef.filter.categoryBits = fixture.categoryBits;
+            fixtureDef.filter.maskBits = fixture.maskBits;
+            fixtureDef.filter.groupIndex = fixture.groupIndex;
+
+            fixtureDef.shape = polygon;
+            for (float[] vertices : fixture.polygons) {
+                if (ratioX == 1 && ratioY == 1) {
+                    polygon.set(vertices);
+                } else {
+                    polygon.set(scale(vertices, ratioX, ratioY), 0, vertices.length);
+                }
+                body.createFixture(fixtureDef);
+            }
+
+            fixtureDef.shape = circle;
+            for (int i = 0; i < fixture.circles.length; i += 3) {
+                circle.setPosition(position.set(fixture.circles[i] * ratioX, fixture.circles[i + 1] * ratioY));
+                circle.setRadius(fixture.circles[i + 2] * ratioX);
+                body.createFixture(fixtureDef);
+            }
+        }
+
+        fixtureDef.shape = null;
+        return body;
+    }
+
+    private float[] scale(float[] vertices, float ratioX, float ratioY) {
+        if (scaled.length < vertices.length) scaled = new float[vertices.length];
+        for (int i = 0; i < vertices.length; i += 2) {
+            scaled[i] = vertices[i] * ratioX;
+            scaled[i + 1] = vertices[i + 1] * ratioY;
+        }
+        return scaled;
+    }
+
+    /**
+     * Frees the native shapes used while creating bodies.
+     */
+    @Override
+    public void dispose() {
+        polygon.dispose();
+        circle.dispose();
+    }
+}
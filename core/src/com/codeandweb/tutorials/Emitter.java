@@ -0,0 +1,77 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.math.Rectangle;
+
+import java.util.Arrays;
+
+/**
+ * The rules for where, how fast and which fruit falls from the sky. A
+ * {@link FruitSpawner} follows them.
+ */
+public class Emitter {
+    /**
+     * Where new fruit appears, in meters. This is where the body's origin is
+     * placed.
+     */
+    final Rectangle area;
+
+    /**
+     * How many fruit to spawn per second. {@link Float#POSITIVE_INFINITY}
+     * spawns them as quickly as there is room and time for.
+     */
+    final float rate;
+
+    /**
+     * How many fruit to spawn in total, or -1 to keep spawning forever.
+     */
+    final int count;
+
+    /**
+     * Seeds the random numbers for positions and types, so the same rules
+     * always make the same fruit fall in the same places.
+     */
+    final long seed;
+
+    /**
+     * The kinds of fruit to pick from.
+     */
+    final String[] names;
+
+    /**
+     * How likely each of the {@link #names} is to be picked, relative to the
+     * others.
+     */
+    final float[] weights;
+
+    /**
+     * Picks every kind of fruit equally often.
+     */
+    public Emitter(Rectangle area, float rate, int count, long seed, String... names) {
+        this(area, rate, count, seed, names, equalWeights(names.length));
+    }
+
+    /**
+     * @param area    Where new fruit appears, in meters.
+     * @param rate    Fruit per second.
+     * @param count   How many fruit to spawn, or -1 for no limit.
+     * @param seed    Seed for the random positions and types.
+     * @param names   The kinds of fruit to pick from.
+     * @param weights How likely each kind is to be picked.
+     */
+    public Emitter(Rectangle area, float rate, int count, long seed, String[] names, float[] weights) {
+        if (names.length == 0) throw new IllegalArgumentException("An emitter needs at least one kind of fruit.");
+        if (weights.length != names.length) throw new IllegalArgumentException("Need one weight per name.");
+        this.area = new Rectangle(area);
+        this.rate = rate;
+        this.count = count;
+        this.seed = seed;
+        this.names = names.clone();
+        this.weights = weights.clone();
+    }
+
+    private static float[] equalWeights(int count) {
+        float[] weights = new float[count];
+        Arrays.fill(weights, 1);
+        return weights;
+    }
+}
@@ -0,0 +1,167 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.utils.IntIntMap;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Holds every fruit in the game, in parallel arrays rather than one object
+ * per fruit. Entity {@code i} is made up of {@code bodies[i]}, {@code types[i]},
+ * {@code flags[i]} and slot {@code i} of {@link #transforms}. The first
+ * {@link #size} slots are always in use, so loops simply go from 0 to
+ * {@code size} without checking for gaps.
+ *
+ * Adding a fruit uses the next free slot. Removing one moves the last fruit
+ * into its slot, so both take the same time no matter how many fruit there
+ * are. The arrays double in size whenever they run out of room.
+ *
+ * Since indices change when entities are removed, every entity also gets an
+ * id that stays the same for as long as it exists. Other threads use ids to
+ * refer to entities, see {@link WorldCommands}.
+ */
+public class EntityStore {
+    /**
+     * Set in {@link #flags} for an entity that has left the world and is
+     * waiting to be removed.
+     */
+    static final int OUT_OF_BOUNDS = 1;
+
+    /**
+     * How many entities are in the store.
+     */
+    int size;
+
+    /**
+     * The id of each entity.
+     */
+    int[] ids;
+
+    /**
+     * The physics body of each entity.
+     */
+    Body[] bodies;
+
+    /**
+     * The id in a {@link TypeRegistry} of each entity.
+     */
+    int[] types;
+
+    /**
+     * Per-entity bits for game logic to use. New entities start with none.
+     */
+    int[] flags;
+
+    /**
+     * Where each entity was after the last two physics steps.
+     */
+    final BodyTransforms transforms;
+
+    /**
+     * The index of each entity, by id.
+     */
+    private final IntIntMap indices;
+
+    /**
+     * The id the next entity gets. Any thread may take ids from here ahead
+     * of time, see {@link #reserveId()}.
+     */
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * @param capacity How many entities to make room for up front.
+     */
+    public EntityStore(int capacity) {
+        capacity = Math.max(capacity, 1);
+        ids = new int[capacity];
+        bodies = new Body[capacity];
+        types = new int[capacity];
+        flags = new int[capacity];
+        transforms = new BodyTransforms(capacity);
+        indices = new IntIntMap(capacity);
+    }
+
+    /**
+     * Hands out an id for an entity that will be added later with
+     * {@link #add(Body, int, int)}. Can be called from any thread.
+     */
+    public int reserveId() {
+        return nextId.getAndIncrement();
+    }
+
+    /**
+     * @return The index of the entity with this id, or -1 if there is none.
+     */
+    public int indexOf(int id) {
+        return indices.get(id, -1);
+    }
+
+    /**
+     * Adds an entity for a body that was just created.
+     *
+     * @return The index of the new entity. It stays valid until an entity
+     * before it is removed.
+     */
+    public int add(Body body, int type) {
+        return add(body, type, reserveId());
+    }
+
+    /**
+     * Adds an entity for a body that was just created, with an id from
+     * {@link #reserveId()}.
+     *
+     * @return The index of the new entity.
+     */
+    public int add(Body body, int type, int id) {
+        if (size == bodies.length) grow(size * 2);
+
+        int i = size++;
+        ids[i] = id;
+        indices.put(id, i);
+        bodies[i] = body;
+        types[i] = type;
+        flags[i] = 0;
+        transforms.reset(i, body);
+        return i;
+    }
+
+    /**
+     * Removes entity {@code i} by moving the last entity into its slot. The
+     * body is not destroyed.
+     *
+     * @return The body that was removed.
+     */
+    public Body remove(int i) {
+        Body body = bodies[i];
+        indices.remove(ids[i], -1);
+        int last = --size;
+        if (i != last) {
+            ids[i] = ids[last];
+            indices.put(ids[i], i);
+            bodies[i] = bodies[last];
+            types[i] = types[last];
+            flags[i] = flags[last];
+            transforms.move(last, i);
+        }
+        bodies[last] = null;
+        return body;
+    }
+
+    /**
+     * Removes every entity. The bodies are not destroyed.
+     */
+    public void clear() {
+        Arrays.fill(bodies, 0, size, null);
+        indices.clear();
+        size = 0;
+    }
+
+    private void grow(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        bodies = Arrays.copyOf(bodies, capacity);
+        types = Arrays.copyOf(types, capacity);
+        flags = Arrays.copyOf(flags, capacity);
+        transforms.ensureCapacity(capacity);
+    }
+}
@@ -0,0 +1,139 @@
+package com.codeandweb.tutorials;
+
+/**
+ * Decides how many fixed-size physics steps to take each frame. Frame times
+ * are added to an accumulator, and whole steps are taken out of it until less
+ * than one step is left. You can read more on why this matters in this
+ * article: https://gafferongames.com/post/fix_your_timestep/
+ *
+ * A slow frame would otherwise ask for more and more steps, which makes the
+ * next frame slower still (the "spiral of death"). To prevent that, no more
+ * than {@link #getMaxSubsteps()} steps are taken in one frame. Any time left
+ * over beyond that is dropped, so the simulation briefly runs slower than
+ * real time instead of falling further and further behind.
+ */
+public class FixedTimestep {
+    /**
+     * Seconds simulated by every step.
+     */
+    private float stepTime;
+
+    /**
+     * The most steps that {@link #advance(float)} will ever ask for at once.
+     */
+    private int maxSubsteps;
+
+    /**
+     * Frame time that has not been simulated yet. Always less than one step
+     * after {@link #advance(float)} returns.
+     */
+    private float accumulator;
+
+    private long steps;
+    private long droppedSteps;
+    private long caughtUpSteps;
+
+    /**
+     * @param stepTime    Seconds simulated by every step.
+     * @param maxSubsteps The most steps to take in a single frame.
+     */
+    public FixedTimestep(float stepTime, int maxSubsteps) {
+        setStepTime(stepTime);
+        setMaxSubsteps(maxSubsteps);
+    }
+
+    /**
+     * Adds a frame's worth of time to the accumulator.
+     *
+     * @param delta Seconds that have passed since the last frame.
+     * @return How many steps of {@link #getStepTime()} to simulate now.
+     */
+    public int advance(float delta) {
+        if (delta > 0) accumulator += delta;
+
+        int due = (int) (accumulator / stepTime);
+        if (due > maxSubsteps) {
+            // More is owed than we are willing to catch up on, forget the rest.
+            droppedSteps += due - maxSubsteps;
+            due = maxSubsteps;
+            accumulator = accumulator % stepTime;
+        } else {
+            accumulator -= due * stepTime;
+        }
+
+        // Rounding can leave the accumulator a hair outside [0, stepTime).
+        if (accumulator < 0) accumulator = 0;
+
+        if (due > 1) caughtUpSteps += due - 1;
+        steps += due;
+        return due;
+    }
+
+    /**
+     * @return How far we are into the next step, from 0 (just stepped) to
+     * almost 1 (about to step).
+     */
+    public float getAlpha() {
+        return Math.min(accumulator / stepTime, 1);
+    }
+
+    public float getStepTime() {
+        return stepTime;
+    }
+
+    /**
+     * @param stepTime Seconds simulated by every step, for example 1/30 to run
+     *                 physics at 30 Hz.
+     */
+    public void setStepTime(float stepTime) {
+        if (stepTime <= 0) throw new IllegalArgumentException("stepTime must be > 0: " + stepTime);
+        this.stepTime = stepTime;
+    }
+
+    public int getMaxSubsteps() {
+        return maxSubsteps;
+    }
+
+    public void setMaxSubsteps(int maxSubsteps) {
+        if (maxSubsteps < 1) throw new IllegalArgumentException("maxSubsteps must be >= 1: " + maxSubsteps);
+        this.maxSubsteps = maxSubsteps;
+    }
+
+    /**
+     * Forgets the frame time waiting to be simulated, for example after the
+     * game was paused, so that time is not caught up on.
+     */
+    public void reset() {
+        accumulator = 0;
+    }
+
+    /**
+     * @return Seconds of frame time waiting to be simulated.
+     */
+    public float getAccumulator() {
+        return accumulator;
+    }
+
+    /**
+     * @return Every step taken since this was created.
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    /**
+     * @return Steps that were owed but skipped because a frame would have
+     * needed more than {@link #getMaxSubsteps()} of them.
+     */
+    public long getDroppedSteps() {
+        return droppedSteps;
+    }
+
+    /**
+     * @return Extra steps taken to catch up, that is every step beyond the
+     * first one in a frame.
+     */
+    public long getCaughtUpSteps() {
+        return caughtUpSteps;
+    }
+}
@@ -0,0 +1,367 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Measures how long each part of a frame takes, and counts what each frame
+ * did, so a slow frame can be traced back to the part that made it slow.
+ *
+ * Every phase and every counter has a {@link Histogram}. Timing a phase
+ * takes two calls to {@link System#nanoTime()} and one histogram update,
+ * and nothing is allocated, so this can stay on in release builds. The
+ * physics thread and the render thread both record into the same profiler.
+ *
+ * The results can be read at any time with {@link #get(int)}. If a file is
+ * set with {@link #setCsvFile(FileHandle, float)}, {@link #update()} also
+ * appends the p50, p99 and p99.9 of every histogram to it every few
+ * seconds and starts over, so the file shows how the numbers change over
+ * time. The frame that does this only reads the numbers out of the
+ * histograms. Turning them into text and appending them to the file happens
+ * on a thread of its own.
+ */
+public class FrameProfiler {
+    /**
+     * Nanoseconds spent clearing the screen.
+     */
+    static final int CLEAR = 0;
+
+    /**
+     * Nanoseconds spent in one {@code world.step}.
+     */
+    static final int STEP = 1;
+
+    /**
+     * Nanoseconds spent placing the fruit's quads and handing them to the
+     * batch.
+     */
+    static final int SYNC = 2;
+
+    /**
+     * Nanoseconds spent passing the last quads to the batch and in
+     * {@code batch.end()}, which sends the vertices to the GPU.
+     */
+    static final int FLUSH = 3;
+
+    /**
+     * Nanoseconds spent in all of {@code render()}.
+     */
+    static final int FRAME = 4;
+
+    /**
+     * Nanoseconds spent loading one asset in {@code create()}.
+     */
+    static final int LOAD = 5;
+
+    /**
+     * Nanoseconds spent copying the fruit into a snapshot after stepping.
+     */
+    static final int PUBLISH = 6;
+
+    /**
+     * Nanoseconds spent in all of {@code drawFruit()}, which includes
+     * {@link #SYNC} and {@link #FLUSH}.
+     */
+    static final int DRAW = 7;
+
+    /**
+     * Physics steps taken since the last frame, counted when the frame
+     * draws the newest snapshot.
+     */
+    static final int STEPS = 8;
+
+    /**
+     * Fruit drawn per frame.
+     */
+    static final int DRAWN = 9;
+
+    /**
+     * {@code SpriteBatch.renderCalls} per frame.
+     */
+    static final int RENDER_CALLS = 10;
+
+    /**
+     * Velocity iterations of each {@code world.step}, as picked by the
+     * {@link SolverController}.
+     */
+    static final int VELOCITY_ITERATIONS = 11;
+
+    /**
+     * Position iterations of each {@code world.step}.
+     */
+    static final int POSITION_ITERATIONS = 12;
+
+    /**
+     * The name of each phase and counter, as used in the CSV file.
+     */
+    static final String[] NAMES = {"clear", "step", "sync", "flush", "frame", "load", "publish", "draw", "steps",
+            "drawn", "render_calls", "velocity_iterations", "position_iterations"};
+
+    /**
+     * Is told about every phase as it begins and ends, for example to pass
+     * the phases on to a profiler that shows them on a timeline. A phase
+     * always ends on the thread it began on, and phases on one thread nest.
+     */
+    public interface Listener {
+        /**
+         * @param phase One of the phases, such as {@link #STEP}.
+         */
+        void begin(int phase);
+
+        /**
+         * @param phase The phase that was passed to {@link #begin(int)}.
+         * @param start When the phase began, from {@link System#nanoTime()}.
+         * @param end   When the phase ended, from {@link System#nanoTime()}.
+         * @param name  What the phase was about, such as the file that was
+         *              loaded, or null.
+         */
+        void end(int phase, long start, long end, String name);
+    }
+
+    /**
+     * The numbers of each histogram in a line of the CSV file: count, mean,
+     * p50, p99, p99.9 and max.
+     */
+    private static final int COLUMNS = 6;
+
+    /**
+     * How long {@link #writeCsv(Writer, double)} waits for the writer thread
+     * to finish the last lines, in milliseconds.
+     */
+    static final long WRITE_TIMEOUT = 5000;
+
+    private final Histogram[] histograms = new Histogram[NAMES.length];
+    private Listener[] listeners = new Listener[0];
+
+    private final long startTime = System.nanoTime();
+    private volatile FileHandle csvFile;
+    private long csvInterval;
+    private long lastCsv;
+
+    /**
+     * The lines that are being written, {@link #COLUMNS} numbers per
+     * histogram. Filled in while {@link #writing} is false, and only read by
+     * the writer thread while it is true.
+     */
+    private final double[] summaries = new double[NAMES.length * COLUMNS];
+    private double summarySeconds;
+
+    /**
+     * Whether the writer thread has lines to write. Guarded by this.
+     */
+    private boolean writing;
+    private Thread writer;
+
+    public FrameProfiler() {
+        for (int i = 0; i < histograms.length; i++) histograms[i] = new Histogram();
+    }
+
+    /**
+     * Adds a listener that is told about every phase. Add them before the
+     * phases start, that is before {@code create()}.
+     */
+    public void addListener(Listener listener) {
+        Listener[] added = new Listener[listeners.length + 1];
+        System.arraycopy(listeners, 0, added, 0, listeners.length);
+        added[listeners.length] = listener;
+        listeners = added;
+    }
+
+    /**
+     * @param phase One of {@link #CLEAR}, {@link #STEP}, {@link #SYNC},
+     *              {@link #FLUSH}, {@link #FRAME}, {@link #LOAD},
+     *              {@link #PUBLISH} or {@link #DRAW}.
+     * @return The time to pass to {@link #end(int, long)} once the phase is
+     * over.
+     */
+    public long start(int phase) {
+        Listener[] listeners = this.listeners;
+        for (int i = 0; i < listeners.length; i++) listeners[i].begin(phase);
+        return System.nanoTime();
+    }
+
+    /**
+     * Records how long a phase took.
+     *
+     * @param phase The phase that was passed to {@link #start(int)}.
+     * @param start What {@link #start(int)} returned when the phase began.
+     * @return How long the phase took, in nanoseconds.
+     */
+    public long end(int phase, long start) {
+        return end(phase, start, null);
+    }
+
+    /**
+     * @param name What the phase was about, such as the file that was loaded.
+     * @see #end(int, long)
+     */
+    public long end(int phase, long start, String name) {
+        long end = System.nanoTime();
+        histograms[phase].record(end - start);
+        Listener[] listeners = this.listeners;
+        for (int i = 0; i < listeners.length; i++) listeners[i].end(phase, start, end, name);
+        return end - start;
+    }
+
+    /**
+     * Records a counter's value for one frame.
+     *
+     * @param counter One of {@link #STEPS}, {@link #DRAWN},
+     *                {@link #RENDER_CALLS}, {@link #VELOCITY_ITERATIONS} or
+     *                {@link #POSITION_ITERATIONS}.
+     */
+    public void count(int counter, long value) {
+        histograms[counter].record(value);
+    }
+
+    /**
+     * @return The histogram of a phase or counter.
+     */
+    public Histogram get(int metric) {
+        return histograms[metric];
+    }
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    public void reset() {
+        for (Histogram histogram : histograms) histogram.reset();
+    }
+
+    /**
+     * Makes {@link #update()} append the results to a CSV file.
+     *
+     * @param file     The file to append to, or null to stop.
+     * @param interval Seconds between two dumps.
+     */
+    public void setCsvFile(FileHandle file, float interval) {
+        csvFile = file;
+        csvInterval = (long) (interval * 1e9);
+        lastCsv = System.nanoTime();
+        if (file != null && !file.exists()) {
+            file.writeString("seconds,metric,count,mean,p50,p99,p999,max\n", false, "UTF-8");
+        }
+    }
+
+    /**
+     * Call this once per frame. When the CSV interval has passed, hands the
+     * results to the writer thread and starts over. If the writer is still
+     * busy with the last ones, this tries again next frame.
+     */
+    public void update() {
+        if (csvFile == null) return;
+        long now = System.nanoTime();
+        if (now - lastCsv < csvInterval) return;
+
+        synchronized (this) {
+            if (writing) return;
+            lastCsv = now;
+            summarize((now - startTime) / 1e9);
+            reset();
+            writing = true;
+            if (writer == null || !writer.isAlive()) startWriter();
+            notifyAll();
+        }
+    }
+
+    /**
+     * Writes one line per phase and counter, without the header, on the
+     * calling thread. Waits up to {@link #WRITE_TIMEOUT} for the writer
+     * thread first.
+     *
+     * @param seconds The time to put in the first column.
+     */
+    public synchronized void writeCsv(Writer writer, double seconds) throws IOException {
+        long deadline = System.currentTimeMillis() + WRITE_TIMEOUT;
+        boolean interrupted = false;
+        while (writing) {
+            long left = deadline - System.currentTimeMillis();
+            if (left <= 0) throw new IOException("The profile writer thread did not finish in time");
+            try {
+                wait(left);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        summarize(seconds);
+        writeSummaries(writer);
+    }
+
+    private void summarize(double seconds) {
+        summarySeconds = seconds;
+        for (int i = 0; i < histograms.length; i++) {
+            Histogram histogram = histograms[i];
+            int offset = i * COLUMNS;
+            summaries[offset] = histogram.getCount();
+            summaries[offset + 1] = histogram.getMean();
+            summaries[offset + 2] = histogram.getPercentile(50);
+            summaries[offset + 3] = histogram.getPercentile(99);
+            summaries[offset + 4] = histogram.getPercentile(99.9);
+            summaries[offset + 5] = histogram.getMax();
+        }
+    }
+
+    private void writeSummaries(Writer writer) throws IOException {
+        for (int i = 0; i < histograms.length; i++) {
+            int offset = i * COLUMNS;
+            writer.write(String.format(Locale.ROOT, "%.3f,%s,%d,%.1f,%d,%d,%d,%d\n", summarySeconds, NAMES[i],
+                    (long) summaries[offset], summaries[offset + 1], (long) summaries[offset + 2],
+                    (long) summaries[offset + 3], (long) summaries[offset + 4], (long) summaries[offset + 5]));
+        }
+    }
+
+    private void startWriter() {
+        writer = new Thread("Profile Writer") {
+            @Override
+            public void run() {
+                while (true) {
+                    synchronized (FrameProfiler.this) {
+                        while (!writing) {
+                            try {
+                                FrameProfiler.this.wait();
+                            } catch (InterruptedException e) {
+                                return;
+                            }
+                        }
+                    }
+                    FileHandle file = csvFile;
+                    try {
+                        append(file);
+                    } catch (RuntimeException e) {
+                        // keep going, the next lines may well be written
+                        Gdx.app.error("FrameProfiler", "Could not write " + file, e);
+                    } finally {
+                        synchronized (FrameProfiler.this) {
+                            writing = false;
+                            FrameProfiler.this.notifyAll();
+                        }
+                    }
+                }
+            }
+        };
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    private void append(FileHandle file) {
+        if (file == null) return;
+        Writer writer = file.writer(true, "UTF-8");
+        try {
+            writeSummaries(writer);
+        } catch (IOException e) {
+            throw new GdxRuntimeException("Could not write " + file, e);
+        } finally {
+            try {
+                writer.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
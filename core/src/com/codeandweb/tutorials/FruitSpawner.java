@@ -0,0 +1,233 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Spawns the fruit an {@link Emitter} asks for, a few at a time. Creating a
+ * body takes a while, and bodies that start out inside each other make the
+ * next {@code world.step} push them apart all at once. So each frame this
+ * only spawns for as long as its time budget allows, and it only puts fruit
+ * where there is room for it. Whatever does not fit into one frame is spawned
+ * in the next ones.
+ *
+ * The spawn points are Poisson-disk samples: random points that are at least
+ * {@link #spacing} apart from each other and from the fruit already in the
+ * {@link Emitter#area}. They are found by trying random points until one is
+ * far enough from everything nearby. A grid with cells as large as the
+ * spacing means only the nine cells around a point have to be checked.
+ */
+public class FruitSpawner {
+    /**
+     * How many random points to try before deciding that there is no room
+     * left in this frame.
+     */
+    static final int ATTEMPTS = 30;
+
+    private final Emitter emitter;
+    private final int[] types;
+    private final float[] cumulativeWeights;
+    private final long budgetNanos;
+    private final Random random;
+
+    /**
+     * How far apart new fruit is placed, in meters.
+     */
+    final float spacing;
+
+    /**
+     * The fruit that is owed but has not been spawned yet.
+     */
+    private float owed;
+
+    private final int columns, rows;
+    private final int[] cells;
+    private int[] next;
+    private float[] pointsX, pointsY;
+    private int points;
+
+    /**
+     * How many fruit have been spawned.
+     */
+    int spawned;
+
+    /**
+     * How many frames ran out of room before spawning everything owed.
+     */
+    int blockedFrames;
+
+    /**
+     * How many frames ran out of time before spawning everything owed.
+     */
+    int overBudgetFrames;
+
+    /**
+     * @param emitter     The rules to follow.
+     * @param types       Where to look up the kinds of fruit the emitter names.
+     * @param budgetNanos How long to spend spawning in one frame. At least one
+     *                    fruit is spawned per frame if there is room.
+     */
+    public FruitSpawner(Emitter emitter, TypeRegistry types, long budgetNanos) {
+        this.emitter = emitter;
+        this.types = types.ids(emitter.names);
+        this.budgetNanos = budgetNanos;
+        random = new Random(emitter.seed);
+
+        cumulativeWeights = new float[emitter.weights.length];
+        float total = 0;
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            total += emitter.weights[i];
+            cumulativeWeights[i] = total;
+        }
+
+        spacing = spacing(types, this.types);
+        Rectangle area = emitter.area;
+        columns = Math.max(1, MathUtils.ceil(area.width / spacing));
+        rows = Math.max(1, MathUtils.ceil(area.height / spacing));
+        cells = new int[columns * rows];
+        next = new int[64];
+        pointsX = new float[64];
+        pointsY = new float[64];
+    }
+
+    /**
+     * @return How far apart fruit of these types has to start so that none
+     * of their sprites overlap. Fruit spawns without rotation, and a sprite's
+     * {@link SpriteTemplate#radius} is the distance to its far corner.
+     */
+    static float spacing(TypeRegistry types, int[] ids) {
+        float spacing = 0;
+        for (int id : ids) spacing = Math.max(spacing, types.sprites[id].radius);
+        return spacing;
+    }
+
+    /**
+     * @return Whether every fruit the emitter asked for has been spawned.
+     */
+    public boolean isDone() {
+        return emitter.count >= 0 && spawned >= emitter.count;
+    }
+
+    /**
+     * Call this once per frame, while the world is not stepping.
+     *
+     * @param delta   Seconds that have passed since the last frame.
+     * @param example Where to spawn the fruit.
+     * @return How many fruit were spawned.
+     */
+    public int update(float delta, PhysicsExample example) {
+        if (isDone()) return 0;
+
+        float remaining = emitter.count < 0 ? Float.MAX_VALUE : emitter.count - spawned;
+        owed = emitter.rate == Float.POSITIVE_INFINITY ? remaining : Math.min(owed + emitter.rate * delta, remaining);
+        if (owed < 1) return 0;
+
+        long start = System.nanoTime();
+        findOccupied(example.fruit);
+
+        Rectangle area = emitter.area;
+        int count = 0;
+        while (owed >= 1) {
+            if (!findRoom(area)) {
+                blockedFrames++;
+                break;
+            }
+
+            float x = pointsX[points - 1], y = pointsY[points - 1];
+            example.spawnFruit(pickType(), x, y, 0);
+            owed--;
+            count++;
+            spawned++;
+
+            if (owed >= 1 && System.nanoTime() - start >= budgetNanos) {
+                overBudgetFrames++;
+                break;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Fills the grid with the fruit that is in or just around the area.
+     */
+    private void findOccupied(EntityStore fruit) {
+        Arrays.fill(cells, -1);
+        points = 0;
+
+        Rectangle area = emitter.area;
+        float left = area.x - spacing, right = area.x + area.width + spacing;
+        float bottom = area.y - spacing, top = area.y + area.height + spacing;
+        BodyTransforms transforms = fruit.transforms;
+        for (int i = 0, n = fruit.size; i < n; i++) {
+            float x = transforms.getX(i), y = transforms.getY(i);
+            if (x >= left && x <= right && y >= bottom && y <= top) add(x, y);
+        }
+    }
+
+    /**
+     * Tries random points in the area until one has room, and adds it to
+     * the grid.
+     *
+     * @return Whether a point was found.
+     */
+    private boolean findRoom(Rectangle area) {
+        for (int attempt = 0; attempt < ATTEMPTS; attempt++) {
+            float x = area.x + random.nextFloat() * area.width;
+            float y = area.y + random.nextFloat() * area.height;
+            if (hasRoom(x, y)) {
+                add(x, y);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean hasRoom(float x, float y) {
+        int column = column(x), row = row(y);
+        float spacing2 = spacing * spacing;
+        for (int r = Math.max(0, row - 1), lastRow = Math.min(rows - 1, row + 1); r <= lastRow; r++) {
+            for (int c = Math.max(0, column - 1), lastColumn = Math.min(columns - 1, column + 1); c <= lastColumn; c++) {
+                for (int p = cells[r * columns + c]; p != -1; p = next[p]) {
+                    float dx = pointsX[p] - x, dy = pointsY[p] - y;
+                    if (dx * dx + dy * dy < spacing2) return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private void add(float x, float y) {
+        if (points == pointsX.length) {
+            int capacity = points * 2;
+            next = Arrays.copyOf(next, capacity);
+            pointsX = Arrays.copyOf(pointsX, capacity);
+            pointsY = Arrays.copyOf(pointsY, capacity);
+        }
+
+        // points just outside the area go into the cells along its edge
+        int cell = row(y) * columns + column(x);
+        pointsX[points] = x;
+        pointsY[points] = y;
+        next[points] = cells[cell];
+        cells[cell] = points++;
+    }
+
+    private int column(float x) {
+        return MathUtils.clamp((int) ((x - emitter.area.x) / spacing), 0, columns - 1);
+    }
+
+    private int row(float y) {
+        return MathUtils.clamp((int) ((y - emitter.area.y) / spacing), 0, rows - 1);
+    }
+
+    private int pickType() {
+        float pick = random.nextFloat() * cumulativeWeights[cumulativeWeights.length - 1];
+        for (int i = 0; i < cumulativeWeights.length - 1; i++) {
+            if (pick < cumulativeWeights[i]) return types[i];
+        }
+        return types[types.length - 1];
+    }
+}
@@ -0,0 +1,113 @@
+package com.codeandweb.tutorials;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts how often values of each size were recorded, so percentiles can be
+ * read back at any time without keeping every value.
+ *
+ * Values up to 63 get a bucket each. Above that, every doubling of the value
+ * is split into 32 buckets of equal width, so a bucket is never more than
+ * about 3% wider than the values in it, whether they are microseconds or
+ * seconds. Recording only increments one of the buckets, so any number of
+ * threads can record at once without locks, and nothing is allocated.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    /**
+     * Larger values are counted as this, about 18 minutes in nanoseconds.
+     */
+    static final long MAX_VALUE = (1L << 40) - 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(index(MAX_VALUE) + 1);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Adds a value. Negative values are counted as 0. Can be called from any
+     * thread.
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        else if (value > MAX_VALUE) value = MAX_VALUE;
+
+        counts.incrementAndGet(index(value));
+        count.incrementAndGet();
+        total.addAndGet(value);
+
+        long highest;
+        while (value > (highest = max.get())) {
+            if (max.compareAndSet(highest, value)) break;
+        }
+    }
+
+    /**
+     * @return How many values have been recorded.
+     */
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * @return The largest value recorded, exactly.
+     */
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * @return The average of all values, exactly.
+     */
+    public double getMean() {
+        long count = this.count.get();
+        return count == 0 ? 0 : (double) total.get() / count;
+    }
+
+    /**
+     * @param percentile Between 0 and 100, for example 99.9.
+     * @return A value that at least this percentage of the recorded values
+     * are smaller than or equal to: the upper end of the bucket the
+     * percentile falls into. 0 if nothing has been recorded.
+     */
+    public long getPercentile(double percentile) {
+        long count = this.count.get();
+        if (count == 0) return 0;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0, n = counts.length(); i < n; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) return Math.min(upperBound(i), max.get());
+        }
+        return max.get();
+    }
+
+    /**
+     * Forgets every value. Values recorded at the same time from another
+     * thread may be partly lost.
+     */
+    public void reset() {
+        for (int i = 0, n = counts.length(); i < n; i++) counts.set(i, 0);
+        count.set(0);
+        total.set(0);
+        max.set(0);
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS * 2) return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int mantissa = (int) (value >>> shift);
+        return (shift + 1) * SUB_BUCKETS + mantissa - SUB_BUCKETS;
+    }
+
+    private static long upperBound(int index) {
+        if (index < SUB_BUCKETS * 2) return index;
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,77 @@
+package com.codeandweb.tutorials;
+
+/**
+ * Decides when nothing on screen can change, so the game can stop rendering
+ * until something happens. Once every body has been asleep for
+ * {@link #getIdleDelay()} seconds the scene is idle; it stops being idle as
+ * soon as a body wakes up or {@link #wake()} is called, for example because
+ * of input.
+ *
+ * This class only makes the decision. {@link PhysicsExample} switches
+ * continuous rendering on and off based on it.
+ */
+public class IdleGovernor {
+    private final float idleDelay;
+
+    /**
+     * Seconds that every body has been asleep.
+     */
+    private float quietTime;
+
+    private boolean idle;
+    private long idlePeriods;
+
+    /**
+     * @param idleDelay Seconds that every body must have been asleep before
+     *                  the scene counts as idle. This keeps a pile that is
+     *                  just settling from switching back and forth.
+     */
+    public IdleGovernor(float idleDelay) {
+        this.idleDelay = idleDelay;
+    }
+
+    /**
+     * Call this once per frame.
+     *
+     * @param awakeBodies How many bodies are awake.
+     * @param delta       Seconds that have passed since the last frame.
+     * @return Whether the scene is idle.
+     */
+    public boolean update(int awakeBodies, float delta) {
+        if (awakeBodies > 0) {
+            quietTime = 0;
+            idle = false;
+        } else {
+            quietTime += delta;
+            if (!idle && quietTime >= idleDelay) {
+                idle = true;
+                idlePeriods++;
+            }
+        }
+        return idle;
+    }
+
+    /**
+     * Ends an idle period right away, for example because the player touched
+     * the screen.
+     */
+    public void wake() {
+        quietTime = 0;
+        idle = false;
+    }
+
+    public boolean isIdle() {
+        return idle;
+    }
+
+    public float getIdleDelay() {
+        return idleDelay;
+    }
+
+    /**
+     * @return How many times the scene has gone idle.
+     */
+    public long getIdlePeriods() {
+        return idlePeriods;
+    }
+}
@@ -0,0 +1,117 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.XmlReader;
+import com.badlogic.gdx.utils.XmlReader.Element;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns the XML exported by PhysicsEditor into the binary format read by
+ * {@link CompiledPhysicsBodies}. This runs as part of the build, through the
+ * {@code compilePhysics} task of the core project:
+ *
+ * <pre>
+ * PhysicsBodyCompiler &lt;physics.xml&gt; &lt;physics.bin&gt; [scale]
+ * </pre>
+ *
+ * The scale defaults to {@link PhysicsExample#SCALE}. The checksum of the XML
+ * is stored with the bodies, so the game can tell when the compiled file is
+ * out of date.
+ */
+public class PhysicsBodyCompiler {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PhysicsBodyCompiler <physics.xml> <physics.bin> [scale]");
+            System.exit(1);
+        }
+
+        float scale = args.length > 2 ? Float.parseFloat(args[2]) : PhysicsExample.SCALE;
+        FileHandle xml = new FileHandle(new File(args[0]));
+        List<CompiledPhysicsBodies.BodyData> bodies = parse(xml, scale, scale);
+
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(args[1])));
+        try {
+            CompiledPhysicsBodies.write(out, CompiledPhysicsBodies.checksum(xml), scale, scale, bodies);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads every body in a PhysicsEditor XML file, multiplying all
+     * coordinates by the given scale.
+     */
+    static List<CompiledPhysicsBodies.BodyData> parse(FileHandle xml, float scaleX, float scaleY) {
+        Element root = new XmlReader().parse(xml);
+        List<CompiledPhysicsBodies.BodyData> bodies = new ArrayList<CompiledPhysicsBodies.BodyData>();
+
+        for (Element element : root.getChildrenByName("body")) {
+            CompiledPhysicsBodies.BodyData body = new CompiledPhysicsBodies.BodyData();
+            body.name = element.getAttribute("name");
+
+            if (element.getChildByName("is_dynamic") != null) {
+                body.type = BodyDef.BodyType.DynamicBody;
+            } else if (element.getChildByName("is_kinematic") != null) {
+                body.type = BodyDef.BodyType.KinematicBody;
+            } else {
+                body.type = BodyDef.BodyType.StaticBody;
+            }
+
+            if (element.getChildByName("allow_sleep") != null) body.flags |= CompiledPhysicsBodies.FLAG_ALLOW_SLEEP;
+            if (element.getChildByName("is_bullet") != null) body.flags |= CompiledPhysicsBodies.FLAG_BULLET;
+            if (element.getChildByName("fixed_rotation") != null) body.flags |= CompiledPhysicsBodies.FLAG_FIXED_ROTATION;
+            body.linearDamping = element.getFloat("linear_damping", 0);
+            body.angularDamping = element.getFloat("angular_damping", 0);
+
+            Array<Element> fixtures = element.getChildrenByName("fixture");
+            body.fixtures = new CompiledPhysicsBodies.FixtureData[fixtures.size];
+            for (int f = 0; f < fixtures.size; f++) {
+                body.fixtures[f] = parseFixture(fixtures.get(f), scaleX, scaleY);
+            }
+
+            bodies.add(body);
+        }
+        return bodies;
+    }
+
+    private static CompiledPhysicsBodies.FixtureData parseFixture(Element element, float scaleX, float scaleY) {
+        CompiledPhysicsBodies.FixtureData fixture = new CompiledPhysicsBodies.FixtureData();
+        fixture.density = element.getFloat("density", 0);
+        fixture.friction = element.getFloat("friction", 0);
+        fixture.restitution = element.getFloat("restitution", 0);
+        fixture.sensor = element.getChildByName("is_sensor") != null;
+        fixture.categoryBits = (short) element.getInt("filter_category_bits", 1);
+        fixture.maskBits = (short) element.getInt("filter_mask_bits", 65535);
+        fixture.groupIndex = (short) element.getInt("filter_group_index", 0);
+
+        Array<Element> polygons = element.getChildrenByName("polygon");
+        fixture.polygons = new float[polygons.size][];
+        for (int p = 0; p < polygons.size; p++) {
+            String[] values = polygons.get(p).getText().split(",");
+            float[] vertices = new float[values.length];
+            for (int i = 0; i < values.length; i++) {
+                vertices[i] = Float.parseFloat(values[i].trim()) * (i % 2 == 0 ? scaleX : scaleY);
+            }
+            fixture.polygons[p] = vertices;
+        }
+
+        Array<Element> circles = element.getChildrenByName("circle");
+        fixture.circles = new float[circles.size * 3];
+        for (int c = 0; c < circles.size; c++) {
+            Element circle = circles.get(c);
+            fixture.circles[c * 3] = circle.getFloatAttribute("x") * scaleX;
+            fixture.circles[c * 3 + 1] = circle.getFloatAttribute("y") * scaleY;
+            fixture.circles[c * 3 + 2] = circle.getFloatAttribute("r") * scaleX;
+        }
+        return fixture;
+    }
+}
@@ -2,20 +2,28 @@ package com.codeandweb.tutorials;
 
 import com.badlogic.gdx.ApplicationAdapter;
 import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.InputAdapter;
+import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.Sprite;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas;
 import com.badlogic.gdx.graphics.g2d.TextureAtlas.AtlasRegion;
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Rectangle;
 import com.badlogic.gdx.math.Vector2;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.Box2D;
 import com.badlogic.gdx.physics.box2d.Box2DDebugRenderer;
+import com.badlogic.gdx.physics.box2d.Fixture;
 import com.badlogic.gdx.physics.box2d.FixtureDef;
 import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.QueryCallback;
 import com.badlogic.gdx.physics.box2d.World;
 import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.GdxRuntimeException;
 import com.badlogic.gdx.utils.ScreenUtils;
 import com.badlogic.gdx.utils.viewport.ExtendViewport;
 import com.codeandweb.physicseditor.PhysicsShapeCache;
@@ -35,13 +43,16 @@ public class PhysicsExample extends ApplicationAdapter {
      * Setting it to a higher rate will result in a smoother, but slower
      * simulation. Setting it to a lower value will result in a choppy frame
      * rate, but increase the amount of polygons the simulation can process.
+     * Since the fruit is drawn in between steps (see {@link #fruit}),
+     * a lower rate such as 1/30 still moves smoothly on screen.
      */
     static final float STEP_TIME = 1f / 60f;
 
     /**
      * Velocity iterations will improve the stability of the physics simulation.
      * A higher value will provide greater precision for collision detection, at
-     * the cost of consuming more of the CPU.
+     * the cost of consuming more of the CPU. When a scene gets too heavy,
+     * {@link #solver} uses fewer.
      */
     static final int VELOCITY_ITERATIONS = 6;
 
@@ -55,6 +66,25 @@ public class PhysicsExample extends ApplicationAdapter {
      */
     static final int POSITION_ITERATIONS = 2;
 
+    /**
+     * The fewest velocity iterations {@link #solver} goes down to when the
+     * steps take too long. Below this, stacked fruit starts to jitter.
+     */
+    static final int MIN_VELOCITY_ITERATIONS = 3;
+
+    /**
+     * The fewest position iterations {@link #solver} goes down to. Below
+     * this, stacked fruit sinks into each other.
+     */
+    static final int MIN_POSITION_ITERATIONS = 1;
+
+    /**
+     * How long one step may take on average before {@link #solver} lowers
+     * the iterations, in nanoseconds. A quarter of a frame at 60 frames per
+     * second, so a frame that needs to catch up on a few steps still fits.
+     */
+    static final long STEP_BUDGET_NANOS = 4000000;
+
     /**
      * This is a scalar used to make our sprites fit within the physics
      * simulation. Without it the sprites would be too big to be drawn on the
@@ -62,11 +92,64 @@ public class PhysicsExample extends ApplicationAdapter {
      */
     static final float SCALE = 0.05f;
 
+    /**
+     * The most physics steps we take in a single frame. When a frame takes so
+     * long that even more would be needed, the rest of the time is dropped
+     * rather than making the next frame slower as well.
+     */
+    static final int MAX_SUBSTEPS = 5;
+
+    /**
+     * How many seconds all fruit must have been asleep before we stop
+     * rendering frames that would all look the same.
+     */
+    static final float IDLE_DELAY = 0.5f;
+
+    /**
+     * How long {@link #spawner} may spend creating fruit in one frame, in
+     * nanoseconds. Fruit that does not fit into that time falls a few frames
+     * later instead of making one frame take much longer.
+     */
+    static final long SPAWN_BUDGET_NANOS = 2000000;
+
+    /**
+     * How many {@link #commands} can wait for the physics thread at once.
+     */
+    static final int COMMAND_CAPACITY = 1024;
+
     /**
      * Adjust this value to change the amount of fruit that falls from the sky.
      */
     static final int COUNT = 25;
 
+    /**
+     * The names of the bodies in assets/physics.xml, and of the matching
+     * regions in assets/sprites.txt, that fall from the sky.
+     */
+    static final String[] FRUIT_NAMES = new String[]{"banana", "cherries", "orange"};
+
+    /**
+     * How many despawned bodies of each kind of fruit {@link #pool} keeps
+     * for new fruit to reuse.
+     */
+    static final int MAX_POOLED = 64;
+
+    /**
+     * Fruit that rolls off the end of the ground keeps falling forever. Once
+     * it is this far below the ground it is despawned.
+     */
+    static final float KILL_PLANE_Y = -20;
+
+    /**
+     * How much fruit this instance drops. Defaults to {@link #COUNT}.
+     */
+    final int count;
+
+    /**
+     * The kinds of fruit this instance drops. Defaults to {@link #FRUIT_NAMES}.
+     */
+    final String[] fruitNames;
+
     /**
      * Used to convert our sprite sheet found at assets/sprites.png and
      * described in assets/sprites.txt into {@link Sprite} objects.
@@ -85,6 +168,25 @@ public class PhysicsExample extends ApplicationAdapter {
      */
     final HashMap<String, Sprite> sprites = new HashMap<String, Sprite>();
 
+    /**
+     * Gives every sprite, and the body with the same name, a number. The
+     * sprites are turned into templates that can be drawn for many bodies at
+     * once without changing the sprite.
+     */
+    final TypeRegistry types = new TypeRegistry();
+
+    /**
+     * How many sprites {@link #quads} collects before passing them to the
+     * {@link #batch}.
+     */
+    static final int QUADS_PER_FLUSH = 256;
+
+    /**
+     * Collects the vertices of the fruit so they reach the {@link #batch} in
+     * large chunks.
+     */
+    final QuadBuffer quads = new QuadBuffer(QUADS_PER_FLUSH);
+
     /**
      * A 2D camera. This is required for scaling our sprites. It is managed by
      * {@link #viewport}.
@@ -110,15 +212,36 @@ public class PhysicsExample extends ApplicationAdapter {
     Box2DDebugRenderer debugRenderer;
 
     /**
-     * Parses XML data exported from PhysicsEditor into Box2D bodies.
+     * Parses XML data exported from PhysicsEditor into Box2D bodies. Only used
+     * when {@link #compiledBodies} could not be loaded.
      */
     PhysicsShapeCache physicsBodies;
 
     /**
-     * Used to fix our physics step time. You can read more on what that means in
-     * this article: https://gafferongames.com/post/fix_your_timestep/
+     * The same bodies as assets/physics.xml, compiled into assets/physics.bin
+     * by the {@code compilePhysics} build task. Loading these is much quicker
+     * than parsing the XML.
      */
-    float accumulator = 0;
+    CompiledPhysicsBodies compiledBodies;
+
+    /**
+     * Drops the fruit into the world a few at a time, following the rules
+     * from {@link #createEmitter()}.
+     */
+    FruitSpawner spawner;
+
+    /**
+     * Creates fruit from {@link #compiledBodies} or {@link #physicsBodies},
+     * reusing the scaled shapes so every fruit after the first of its kind
+     * is quick to create.
+     */
+    BodyFactory bodyFactory;
+
+    /**
+     * Used to fix our physics step time. It turns the time each frame took into
+     * a number of {@link #STEP_TIME} steps to simulate.
+     */
+    final FixedTimestep timestep = new FixedTimestep(STEP_TIME, MAX_SUBSTEPS);
 
     /**
      * A physics body for the ground. This is a static body that does not move.
@@ -127,35 +250,217 @@ public class PhysicsExample extends ApplicationAdapter {
     Body ground;
 
     /**
-     * Stores the physics bodies of the fruits that fall from the sky.
+     * Half the width of the {@link #ground} in meters, as it was last built.
+     */
+    float groundWidth;
+
+    /**
+     * Half the width the {@link #ground} should have, in meters. The render
+     * thread sets this when the screen is resized, and the next call to
+     * {@link #stepWorld(float)} resizes the ground to match. Only the last
+     * width counts, so dragging a window edge does not pile up work.
+     */
+    volatile float groundTarget;
+
+    /**
+     * Wakes up the fruit that {@link #resizeGround(float)} finds lying where
+     * the ground used to be.
+     */
+    private final QueryCallback wakeFruit = new QueryCallback() {
+        @Override
+        public boolean reportFixture(Fixture fixture) {
+            Body body = fixture.getBody();
+            if (body != ground) body.setAwake(true);
+            return true;
+        }
+    };
+
+    /**
+     * Stores the fruits that fall from the sky: their physics bodies, their
+     * ids in {@link #types}, and where they were after the last two physics
+     * steps. We draw the fruit in between those two steps, so the motion
+     * stays smooth even when the frame rate does not match {@link #STEP_TIME}.
+     * Fruit can be added and removed at any time.
+     */
+    final EntityStore fruit;
+
+    /**
+     * The part of the world that fruit can be in, in meters. Fruit outside
+     * of it is despawned after the physics step. The bottom edge is the kill
+     * plane; the sides are far enough out that nothing there can come back.
+     */
+    final Rectangle bounds = new Rectangle(-500, KILL_PLANE_Y, 1000, 1000);
+
+    /**
+     * Holds the bodies of despawned fruit, so that new fruit of the same
+     * kind does not have to be created from scratch.
+     */
+    final BodyPool pool = new BodyPool(MAX_POOLED);
+
+    /**
+     * How many fruit have been despawned in total.
+     */
+    long despawnedFruit;
+
+    /**
+     * How many of the {@link #fruit} were awake after the last step.
+     */
+    int awakeFruit;
+
+    /**
+     * Passes the {@link #fruit} from the thread that steps the world to the
+     * thread that draws it. {@link #drawFruit()} only ever reads from here.
+     */
+    final SnapshotBuffer snapshots;
+
+    /**
+     * The last quad drawn for each fruit in the snapshot, so resting fruit
+     * does not have to be placed again.
+     */
+    final QuadCache fruitQuads;
+
+    /**
+     * Changes to the world that other threads have asked for, see
+     * {@link #requestSpawn(int, float, float, float)} and the methods after
+     * it.
+     */
+    final WorldCommands commands = new WorldCommands(COMMAND_CAPACITY);
+
+    /**
+     * Steps the world once {@link #render()} has been called for the first
+     * time. From then on the world belongs to that thread, and other threads
+     * must change it through {@link #commands}.
+     */
+    volatile PhysicsThread physicsThread;
+
+    /**
+     * Whether {@link #render()} starts the {@link #physicsThread}, see
+     * {@link #setThreaded(boolean)}.
+     */
+    private boolean threaded = true;
+
+    /**
+     * Turns continuous rendering off while every fruit is asleep, and back on
+     * when one wakes up or the player does something.
+     */
+    final IdleGovernor idleGovernor = new IdleGovernor(IDLE_DELAY);
+
+    /**
+     * Picks the iterations for each step, between {@link #VELOCITY_ITERATIONS}
+     * and {@link #POSITION_ITERATIONS} for light scenes and
+     * {@link #MIN_VELOCITY_ITERATIONS} and {@link #MIN_POSITION_ITERATIONS}
+     * for heavy ones.
+     */
+    final SolverController solver = new SolverController(STEP_BUDGET_NANOS, MIN_VELOCITY_ITERATIONS,
+            VELOCITY_ITERATIONS, MIN_POSITION_ITERATIONS, POSITION_ITERATIONS);
+
+    /**
+     * How many fruit {@link #drawFruit()} drew during the last frame.
+     */
+    int drawnFruit;
+
+    /**
+     * How many of the {@link #drawnFruit} were resting and drawn from
+     * the quads cached in {@link #fruitQuads}.
+     */
+    int cachedFruit;
+
+    /**
+     * How many fruit {@link #drawFruit()} skipped during the last frame
+     * because they were outside of the camera's view.
+     */
+    int culledFruit;
+
+    /**
+     * The total steps of the snapshot drawn during the last frame, so the
+     * next frame can tell how many steps were taken in between.
      */
-    Body[] fruitBodies = new Body[COUNT];
+    long drawnSteps;
 
     /**
-     * Stores pointers to the sprites contained in {@link #sprites} that match
-     * the bodies in {@link #fruitBodies}.
+     * Times the parts of every frame and every physics step, see
+     * {@link FrameProfiler}.
      */
-    Sprite[] fruitSprites = new Sprite[COUNT];
+    final FrameProfiler profiler = new FrameProfiler();
+
+    /**
+     * Keeps the last phases of {@link #profiler} for looking at them on a
+     * timeline. Pressing F9 writes them out. Null unless the launcher set it
+     * up.
+     */
+    TraceRecorder traceRecorder;
+
+    public PhysicsExample() {
+        this(COUNT, FRUIT_NAMES);
+    }
+
+    /**
+     * @param count      How much fruit to drop.
+     * @param fruitNames The kinds of fruit to pick from at random.
+     */
+    public PhysicsExample(int count, String... fruitNames) {
+        this.count = count;
+        this.fruitNames = fruitNames;
+        fruit = new EntityStore(count);
+        snapshots = new SnapshotBuffer(count);
+        fruitQuads = new QuadCache(count);
+    }
+
+    /**
+     * Whether {@link #render()} steps the world on a {@link PhysicsThread}.
+     * Turn this off before the first frame to step it on the calling thread
+     * instead, by calling {@link #updateSpawner(float)} and
+     * {@link #stepWorld(float)} after each frame.
+     */
+    public void setThreaded(boolean threaded) {
+        this.threaded = threaded;
+    }
 
     @Override
     public void create() {
         camera = new OrthographicCamera();
         viewport = new ExtendViewport(50, 50, camera);
-        textureAtlas = new TextureAtlas("sprites.txt");
         batch = new SpriteBatch();
+        long loadStart = profiler.start(FrameProfiler.LOAD);
+        textureAtlas = new TextureAtlas("sprites.txt");
         loadSprites();
+        profiler.end(FrameProfiler.LOAD, loadStart, "sprites.txt");
 
         Box2D.init();
         world = new World(new Vector2(0, -40), true);
-        physicsBodies = new PhysicsShapeCache("physics.xml");
+        loadPhysicsBodies();
         debugRenderer = new Box2DDebugRenderer();
-        generateFruit();
+        createGround();
+        spawner = new FruitSpawner(createEmitter(), types, SPAWN_BUDGET_NANOS);
+
+        // any input ends an idle period, so the next frames are rendered
+        Gdx.input.setInputProcessor(new InputAdapter() {
+            @Override
+            public boolean keyDown(int keycode) {
+                idleGovernor.wake();
+                if (keycode == Input.Keys.F9 && traceRecorder != null) traceRecorder.requestDump();
+                return false;
+            }
+
+            @Override
+            public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+                idleGovernor.wake();
+                return false;
+            }
+
+            @Override
+            public boolean scrolled(float amountX, float amountY) {
+                idleGovernor.wake();
+                return false;
+            }
+        });
     }
 
     /**
-     * Loads the sprites and caches them into {@link #sprites}.
+     * Loads the sprites and caches them into {@link #sprites}, and registers
+     * each of them in {@link #types}.
      */
-    private void loadSprites() {
+    void loadSprites() {
         Array<AtlasRegion> regions = textureAtlas.getRegions();
 
         for (AtlasRegion region : regions) {
@@ -167,39 +472,201 @@ public class PhysicsExample extends ApplicationAdapter {
             sprite.setOrigin(0, 0);
 
             sprites.put(region.name, sprite);
+            types.register(region.name, new SpriteTemplate(sprite));
+        }
+    }
+
+    /**
+     * Loads {@link #compiledBodies}, falling back to parsing the XML into
+     * {@link #physicsBodies} if the compiled file is missing or out of date:
+     * compiled by another version of the game, or from a physics.xml that
+     * has changed since.
+     */
+    void loadPhysicsBodies() {
+        long start = profiler.start(FrameProfiler.LOAD);
+        FileHandle compiled = Gdx.files.internal("physics.bin");
+        FileHandle xml = Gdx.files.internal("physics.xml");
+        if (compiled.exists()) {
+            try {
+                compiledBodies = CompiledPhysicsBodies.load(compiled, xml);
+                bodyFactory = new BodyFactory(compiledBodies);
+                profiler.end(FrameProfiler.LOAD, start, "physics.bin");
+                return;
+            } catch (GdxRuntimeException e) {
+                Gdx.app.error("PhysicsExample", "Could not load " + compiled + ", using physics.xml", e);
+            }
+        }
+        physicsBodies = new PhysicsShapeCache("physics.xml");
+        bodyFactory = new BodyFactory(physicsBodies);
+        profiler.end(FrameProfiler.LOAD, start, "physics.xml");
+    }
+
+    /**
+     * Describes how {@link #count} random fruit from {@link #fruitNames} falls
+     * from the sky: as quickly as possible, from an area above the screen
+     * that is tall enough to give every fruit some room.
+     */
+    Emitter createEmitter() {
+        float spacing = FruitSpawner.spacing(types, types.ids(fruitNames));
+        float height = Math.max(200, count * spacing * spacing * 3 / 50);
+        return new Emitter(new Rectangle(0, 50, 50, height), Float.POSITIVE_INFINITY, count, new Random().nextLong(),
+                fruitNames);
+    }
+
+    /**
+     * Adds a fruit to the world and to the {@link #fruit} store, reusing a
+     * body from the {@link #pool} when there is one.
+     *
+     * @param type     The id of the fruit in {@link #types}.
+     * @param x        The fruit's initial X position in meters.
+     * @param y        The fruit's initial Y position in meters.
+     * @param rotation The fruit's initial rotation in radians.
+     * @return The fruit's index in the {@link #fruit} store.
+     */
+    int spawnFruit(int type, float x, float y, float rotation) {
+        return spawnFruit(type, x, y, rotation, fruit.reserveId());
+    }
+
+    /**
+     * @param id The id the fruit gets, from {@link EntityStore#reserveId()}.
+     */
+    int spawnFruit(int type, float x, float y, float rotation, int id) {
+        Body body = pool.obtain(type, x, y, rotation);
+        if (body == null) body = createBody(type, x, y, rotation);
+        return fruit.add(body, type, id);
+    }
+
+    /**
+     * Removes a fruit from the {@link #fruit} store and hands its body to the
+     * {@link #pool}, which deactivates or destroys it. The last fruit in the
+     * store takes over its index.
+     *
+     * @param index The fruit's index in the {@link #fruit} store.
+     */
+    void despawnFruit(int index) {
+        int type = fruit.types[index];
+        pool.free(type, fruit.remove(index), world);
+        despawnedFruit++;
+    }
+
+    /**
+     * Asks for a fruit to be spawned before the next step. Can be called from
+     * any thread.
+     *
+     * @param type     The id of the fruit in {@link #types}.
+     * @param x        The fruit's initial X position in meters.
+     * @param y        The fruit's initial Y position in meters.
+     * @param rotation The fruit's initial rotation in radians.
+     * @return The id the fruit will have, or -1 if there is no such type or
+     * too many commands are waiting already.
+     */
+    int requestSpawn(int type, float x, float y, float rotation) {
+        // a bad type would only fail on the physics thread, and stop it
+        if (type < 0 || type >= types.size) {
+            commands.reject();
+            return -1;
         }
+        int id = fruit.reserveId();
+        return submit(WorldCommands.SPAWN, type, id, x, y, rotation) ? id : -1;
+    }
+
+    /**
+     * Asks for a fruit to be despawned before the next step. Can be called
+     * from any thread.
+     *
+     * @param id The id of the fruit, as found in a {@link PhysicsSnapshot}.
+     * @return Whether there was room for the command.
+     */
+    boolean requestDestroy(int id) {
+        return submit(WorldCommands.DESTROY, id, 0, 0, 0, 0);
+    }
+
+    /**
+     * Asks for a fruit to be pushed before the next step. Can be called from
+     * any thread.
+     *
+     * @param id       The id of the fruit, as found in a {@link PhysicsSnapshot}.
+     * @param impulseX The impulse in Newton-seconds along X.
+     * @param impulseY The impulse in Newton-seconds along Y.
+     * @return Whether there was room for the command.
+     */
+    boolean requestImpulse(int id, float impulseX, float impulseY) {
+        return submit(WorldCommands.IMPULSE, id, 0, impulseX, impulseY, 0);
     }
 
     /**
-     * Populates {@link #fruitBodies} and {@link #fruitSprites}.
+     * Asks for a fruit to be moved before the next step. Can be called from
+     * any thread.
+     *
+     * @param id       The id of the fruit, as found in a {@link PhysicsSnapshot}.
+     * @param x        The fruit's new X position in meters.
+     * @param y        The fruit's new Y position in meters.
+     * @param rotation The fruit's new rotation in radians.
+     * @return Whether there was room for the command.
      */
-    private void generateFruit() {
-        String[] fruitNames = new String[]{"banana", "cherries", "orange"};
-        Random random = new Random();
+    boolean requestTransform(int id, float x, float y, float rotation) {
+        return submit(WorldCommands.TRANSFORM, id, 0, x, y, rotation);
+    }
+
+    private boolean submit(int kind, int target, int id, float a, float b, float c) {
+        if (!commands.submit(kind, target, id, a, b, c)) return false;
+        wakePhysics();
+        return true;
+    }
 
-        for (int i = 0; i < fruitBodies.length; i++) {
-            String name = fruitNames[random.nextInt(fruitNames.length)];
-            float x = random.nextFloat() * 50;
-            float y = random.nextFloat() * 200 + 50;
-            fruitSprites[i] = sprites.get(name);
-            fruitBodies[i] = createBody(name, x, y, 0);
+    /**
+     * Makes the {@link #physicsThread} look at its work again, in case it is
+     * waiting because nothing was moving.
+     */
+    void wakePhysics() {
+        PhysicsThread thread = physicsThread;
+        if (thread != null) thread.wake();
+    }
+
+    /**
+     * Carries out one of the {@link #commands}. Commands about a fruit that
+     * is gone by now are skipped.
+     */
+    void executeCommand(int kind, int target, int id, float a, float b, float c) {
+        if (kind == WorldCommands.SPAWN) {
+            spawnFruit(target, a, b, c, id);
+            return;
+        }
+
+        int index = fruit.indexOf(target);
+        if (index < 0) return;
+
+        Body body = fruit.bodies[index];
+        switch (kind) {
+            case WorldCommands.DESTROY:
+                despawnFruit(index);
+                break;
+            case WorldCommands.IMPULSE:
+                Vector2 center = body.getWorldCenter();
+                body.applyLinearImpulse(a, b, center.x, center.y, true);
+                break;
+            case WorldCommands.TRANSFORM:
+                body.setTransform(a, b, c);
+                body.setAwake(true);
+                // a jump, not a movement, so do not draw it in between
+                fruit.transforms.reset(index, body);
+                break;
         }
     }
 
     /**
-     * Uses {@link PhysicsShapeCache} to parse a body described in assets/physics.xml
-     * into a Box2D {@link Body}.
+     * Uses the {@link #bodyFactory} to turn a body described in
+     * assets/physics.xml into a Box2D {@link Body}, created right at its
+     * initial position and rotation.
      *
-     * @param name     The name of the body exactly as it appears in the XML.
+     * @param type     The id of the body in {@link #types}.
      * @param x        The body's initial X position in meters.
      * @param y        The body's initial Y position in meters.
      * @param rotation The body's initial rotation in radians.
      * @return A Box2D {@link Body}.
      */
-    private Body createBody(String name, float x, float y, float rotation) {
-        Body body = physicsBodies.createBody(name, world, SCALE, SCALE);
-        body.setTransform(x, y, rotation);
-        return body;
+    Body createBody(int type, float x, float y, float rotation) {
+        return bodyFactory.create(types.body(type, bodyFactory, world, SCALE, SCALE), world, x, y, rotation);
     }
 
     /**
@@ -211,24 +678,28 @@ public class PhysicsExample extends ApplicationAdapter {
      */
     @Override
     public void resize(int width, int height) {
+        idleGovernor.wake();
         viewport.update(width, height, true);
         batch.setProjectionMatrix(camera.combined);
-        createGround();
+
+        // the ground belongs to the physics thread, which resizes it
+        groundTarget = camera.viewportWidth;
+        wakePhysics();
     }
 
     /**
      * Creates the static ground {@link Body}. Without this the fruit would
-     * continue to fall indefinitely.
+     * continue to fall indefinitely. It starts out as wide as the narrowest
+     * view, and {@link #resizeGround(float)} widens it to fit the screen.
      */
     private void createGround() {
-        if (ground != null) world.destroyBody(ground);
-
         BodyDef bodyDef = new BodyDef();
         bodyDef.type = BodyDef.BodyType.StaticBody;
         FixtureDef fixtureDef = new FixtureDef();
         fixtureDef.friction = 1;
         PolygonShape shape = new PolygonShape();
-        shape.setAsBox(camera.viewportWidth, 1);
+        groundWidth = groundTarget = viewport.getMinWorldWidth();
+        shape.setAsBox(groundWidth, 1);
         fixtureDef.shape = shape;
 
         ground = world.createBody(bodyDef);
@@ -238,6 +709,35 @@ public class PhysicsExample extends ApplicationAdapter {
         shape.dispose();
     }
 
+    /**
+     * Makes the ground span the width of the screen again. While a window is
+     * being dragged this runs many times a second, so instead of building a
+     * new body the existing fixture's shape is changed in place. Destroying
+     * the ground would also wake up every fruit lying on it, while this only
+     * wakes the fruit lying where the ground got shorter.
+     *
+     * @param width The width of the screen in meters.
+     */
+    private void resizeGround(float width) {
+        if (width == groundWidth) return;
+
+        PolygonShape shape = (PolygonShape) ground.getFixtureList().first().getShape();
+        shape.setAsBox(width, 1);
+
+        // moving the ground to where it already is updates its bounds in the
+        // broadphase, without waking the bodies that touch it
+        ground.setTransform(0, 0, 0);
+
+        // sleeping fruit is not simulated, so fruit that was lying on the
+        // ends that are gone now would stay in the air until something
+        // bumped into it
+        if (width < groundWidth) {
+            world.QueryAABB(wakeFruit, width, -1, groundWidth, 2);
+            world.QueryAABB(wakeFruit, -groundWidth, -1, -width, 2);
+        }
+        groundWidth = width;
+    }
+
     /**
      * Called once per frame to render the game. You can use
      * {@code Gdx.graphics.getDeltaTime()} to find out how much time in seconds
@@ -245,74 +745,264 @@ public class PhysicsExample extends ApplicationAdapter {
      */
     @Override
     public void render() {
+        long frameStart = profiler.start(FrameProfiler.FRAME);
+
         // Clear the screen using a sky-blue background.
+        long clearStart = profiler.start(FrameProfiler.CLEAR);
         ScreenUtils.clear(0.57f, 0.77f, 0.85f, 1);
+        profiler.end(FrameProfiler.CLEAR, clearStart);
 
-        // Step the physics world.
-        stepWorld();
+        // Step the physics world on its own thread, which also drops in the
+        // fruit that is due.
+        if (threaded && physicsThread == null) {
+            physicsThread = new PhysicsThread(this);
+            physicsThread.start();
+        }
 
-        // open the sprite batch buffer for drawing
-        batch.begin();
+        // Draw the sprites where the physics thread last put their bodies.
+        drawFruit();
 
-        // iterate through each of the fruits
-        for (int i = 0; i < fruitBodies.length; i++) {
+        // Stop rendering while nothing is moving.
+        updateIdle(Gdx.graphics.getDeltaTime());
 
-            // get the physics body of the fruit
-            Body body = fruitBodies[i];
+        // uncomment to show the physics polygons
+        // debugRenderer.render(world, camera.combined);
 
-            // get the position of the fruit from Box2D
-            Vector2 position = body.getPosition();
+        profiler.end(FrameProfiler.FRAME, frameStart);
+        profiler.update();
+    }
 
-            // get the degrees of rotation by converting from radians
-            float degrees = (float) Math.toDegrees(body.getAngle());
+    /**
+     * Lets the {@link #spawner} add the fruit that is due. This is called
+     * before every time the world is stepped.
+     *
+     * @param delta Seconds that have passed since the last frame.
+     */
+    void updateSpawner(float delta) {
+        spawner.update(delta, this);
+    }
 
-            // draw the fruit on the screen
-            drawSprite(fruitSprites[i], position.x, position.y, degrees);
+    /**
+     * Steps the physics simulation, and publishes where the fruit is now to
+     * {@link #snapshots}. The {@link #physicsThread} calls this as soon as a
+     * step is due; the headless launcher calls it once per frame instead.
+     *
+     * @param delta Seconds that have passed since the last call.
+     */
+    void stepWorld(float delta) {
+        // make the changes other threads asked for, all at once
+        resizeGround(groundTarget);
+        int executed = commands.execute(this);
+
+        int steps = timestep.advance(delta);
+        float stepTime = timestep.getStepTime();
+
+        for (int i = 0; i < steps; i++) {
+            int velocityIterations = solver.getVelocityIterations();
+            int positionIterations = solver.getPositionIterations();
+            long stepStart = profiler.start(FrameProfiler.STEP);
+            world.step(stepTime, velocityIterations, positionIterations);
+            solver.update(profiler.end(FrameProfiler.STEP, stepStart));
+            profiler.count(FrameProfiler.VELOCITY_ITERATIONS, velocityIterations);
+            profiler.count(FrameProfiler.POSITION_ITERATIONS, positionIterations);
+            fruit.transforms.capture(fruit.bodies, fruit.size);
         }
 
-        // close the buffer - this is what actually draws the sprites
-        batch.end();
+        if (steps > 0) despawnOutOfBounds();
 
-        // uncomment to show the physics polygons
-        // debugRenderer.render(world, camera.combined);
+        // commands can wake fruit up even when no step was due
+        if (steps > 0 || executed > 0) {
+            long publishStart = profiler.start(FrameProfiler.PUBLISH);
+            awakeFruit = countAwakeFruit();
+
+            snapshots.back().set(fruit, awakeFruit, timestep.getAlpha(), timestep.getStepTime(), timestep.getSteps(),
+                    System.nanoTime());
+            snapshots.publish();
+            profiler.end(FrameProfiler.PUBLISH, publishStart);
+        }
     }
 
     /**
-     * Steps the physics simulation. This is called every render frame.
+     * @return Whether another thread has asked for the world to be changed,
+     * and {@link #stepWorld(float)} has not got round to it yet.
      */
-    private void stepWorld() {
-        float delta = Gdx.graphics.getDeltaTime();
-        accumulator += Math.min(delta, 0.25f);
+    boolean hasPendingChanges() {
+        return !commands.isEmpty() || groundTarget != groundWidth;
+    }
+
+    /**
+     * Marks the fruit that has left the {@link #bounds}, then despawns all of
+     * it in one go. Bodies must not be changed while the world is stepping,
+     * so this waits until the steps of this frame are done. The positions
+     * come from the transforms captured after the last step, so checking
+     * every fruit does not need to ask Box2D anything.
+     */
+    private void despawnOutOfBounds() {
+        int marked = 0;
+        int[] flags = fruit.flags;
+        BodyTransforms transforms = fruit.transforms;
+        for (int i = 0, n = fruit.size; i < n; i++) {
+            if (!bounds.contains(transforms.getX(i), transforms.getY(i))) {
+                flags[i] |= EntityStore.OUT_OF_BOUNDS;
+                marked++;
+            }
+        }
+        if (marked == 0) return;
 
-        if (accumulator >= STEP_TIME) {
-            accumulator -= STEP_TIME;
-            world.step(STEP_TIME, VELOCITY_ITERATIONS, POSITION_ITERATIONS);
+        // going backwards, the fruit that moves into a despawned fruit's
+        // index has already been looked at
+        for (int i = fruit.size - 1; i >= 0; i--) {
+            if ((flags[i] & EntityStore.OUT_OF_BOUNDS) != 0) despawnFruit(i);
         }
     }
 
     /**
-     * Sets the position and rotation of a sprite, and draws it to the supplied
-     * {@link SpriteBatch}.
+     * Counts the fruit that is awake. Fruit that moved during the last step is
+     * awake for sure, so only the resting fruit has to be asked.
+     */
+    private int countAwakeFruit() {
+        int awake = 0;
+        BodyTransforms transforms = fruit.transforms;
+        Body[] bodies = fruit.bodies;
+        for (int i = 0, n = fruit.size; i < n; i++) {
+            if (!transforms.isResting(i) || bodies[i].isAwake()) awake++;
+        }
+        return awake;
+    }
+
+    /**
+     * Switches continuous rendering off once all fruit has been asleep for a
+     * while, and back on when that changes. While it is off, libGDX still
+     * renders a frame whenever there is input or the window is resized.
      *
-     * @param sprite  The sprite to draw.
-     * @param x       X position in meters.
-     * @param y       Y position in meters.
-     * @param degrees Degrees to rotate the sprite.
+     * @param delta Seconds that have passed since the last frame.
      */
-    private void drawSprite(Sprite sprite, float x, float y, float degrees) {
-        sprite.setPosition(x, y);
-        sprite.setRotation(degrees);
-        sprite.draw(batch);
+    void updateIdle(float delta) {
+        boolean idle = idleGovernor.update(snapshots.read().awake, delta);
+        if (idle == Gdx.graphics.isContinuousRendering()) {
+            Gdx.graphics.setContinuousRendering(!idle);
+        }
+    }
+
+    /**
+     * Draws every fruit that the camera can see, at its position and rotation
+     * blended between the last two physics steps. The fruit comes from the
+     * newest snapshot in {@link #snapshots}, so drawing never has to wait for
+     * the physics thread, or touch the world. Fruit outside the view are
+     * skipped without touching the batch, and fruit that is resting reuses
+     * the quad from when it last moved. This is the part of
+     * {@link #render()} that the headless launcher drives to measure
+     * simulation throughput.
+     */
+    void drawFruit() {
+        long drawStart = profiler.start(FrameProfiler.DRAW);
+
+        // the newest fruit the physics thread has published
+        PhysicsSnapshot snapshot = snapshots.read();
+        profiler.count(FrameProfiler.STEPS, snapshot.steps - drawnSteps);
+        drawnSteps = snapshot.steps;
+
+        // how far we are between the last step and the next one
+        float alpha = snapshot.getAlpha(System.nanoTime());
+
+        // the rectangle that the camera can see, in meters
+        float halfWidth = camera.viewportWidth * camera.zoom / 2;
+        float halfHeight = camera.viewportHeight * camera.zoom / 2;
+        float left = camera.position.x - halfWidth;
+        float right = camera.position.x + halfWidth;
+        float bottom = camera.position.y - halfHeight;
+        float top = camera.position.y + halfHeight;
+
+        int drawn = 0;
+        int cached = 0;
+        int size = snapshot.size;
+        int[] fruitTypes = snapshot.types;
+        BodyTransforms fruitTransforms = snapshot.transforms;
+        fruitQuads.ensureCapacity(size);
+
+        // open the sprite batch buffer for drawing
+        batch.begin();
+        long syncStart = profiler.start(FrameProfiler.SYNC);
+
+        // iterate through each of the fruits
+        for (int i = 0; i < size; i++) {
+            SpriteTemplate template = types.sprites[fruitTypes[i]];
+
+            // get the position of the fruit between the last two steps
+            float x = fruitTransforms.getX(i, alpha);
+            float y = fruitTransforms.getY(i, alpha);
+
+            // skip fruit that would not show up on the screen anyway
+            if (!template.overlaps(x, y, left, bottom, right, top)) continue;
+
+            // get the rotation, using the fast lookup tables for sin and cos
+            float angle = fruitTransforms.getAngle(i, alpha);
+            drawn++;
+
+            // sleeping fruit does not move, so its corners are the same as last time
+            if (fruitTransforms.isResting(i)) {
+                int offset = fruitQuads.update(i, template, x, y, angle);
+                quads.add(batch, template.texture, fruitQuads.vertices, offset);
+                cached++;
+                continue;
+            }
+
+            // add the fruit's corners to the vertices we are collecting
+            quads.add(batch, template, x, y, MathUtils.cos(angle), MathUtils.sin(angle));
+        }
+
+        profiler.end(FrameProfiler.SYNC, syncStart);
+        drawnFruit = drawn;
+        cachedFruit = cached;
+        culledFruit = size - drawn;
+        long flushStart = profiler.start(FrameProfiler.FLUSH);
+
+        // pass on whatever fruit is still being collected
+        quads.flush(batch);
+
+        // close the buffer - this is what actually draws the sprites
+        batch.end();
+        profiler.end(FrameProfiler.FLUSH, flushStart);
+        profiler.count(FrameProfiler.DRAWN, drawn);
+        profiler.count(FrameProfiler.RENDER_CALLS, batch.renderCalls);
+        profiler.end(FrameProfiler.DRAW, drawStart);
     }
 
     /**
      * Frees up all the game's resources. This is called when the game closes.
      */
+    /**
+     * Stops the physics thread from stepping while the game is paused, for
+     * example in the background on Android, where it would only drain the
+     * battery.
+     */
+    @Override
+    public void pause() {
+        PhysicsThread thread = physicsThread;
+        if (thread != null) thread.setPaused(true);
+    }
+
+    /**
+     * Lets the physics thread step again, without catching up on the time
+     * the game was paused.
+     */
+    @Override
+    public void resume() {
+        PhysicsThread thread = physicsThread;
+        if (thread != null) thread.setPaused(false);
+        else timestep.reset();
+    }
+
     @Override
     public void dispose() {
+        if (physicsThread != null) physicsThread.shutdown();
         debugRenderer.dispose();
+        bodyFactory.dispose();
+        if (compiledBodies != null) compiledBodies.dispose();
+        pool.clear();
         world.dispose();
         sprites.clear();
+        types.clear();
         batch.dispose();
         textureAtlas.dispose();
     }
@@ -0,0 +1,99 @@
+package com.codeandweb.tutorials;
+
+import java.util.Arrays;
+
+/**
+ * Everything needed to draw the fruit, copied out of an {@link EntityStore}
+ * after a physics step. The physics thread fills one snapshot while the
+ * render thread draws from another, see {@link SnapshotBuffer}, so neither
+ * has to wait for the other.
+ */
+public class PhysicsSnapshot {
+    /**
+     * How many fruit there were.
+     */
+    int size;
+
+    /**
+     * The id of each fruit, for use in {@link WorldCommands}.
+     */
+    int[] ids;
+
+    /**
+     * The id in a {@link TypeRegistry} of each fruit.
+     */
+    int[] types;
+
+    /**
+     * Where each fruit was after the last two steps.
+     */
+    final BodyTransforms transforms;
+
+    /**
+     * How many of the fruit were awake.
+     */
+    int awake;
+
+    /**
+     * How far the physics clock was between the last step and the next one
+     * when this was taken, see {@link FixedTimestep#getAlpha()}.
+     */
+    float alpha;
+
+    /**
+     * Seconds per physics step when this was taken, see
+     * {@link FixedTimestep#getStepTime()}.
+     */
+    float stepTime;
+
+    /**
+     * How many steps had been taken in total when this was taken, see
+     * {@link FixedTimestep#getSteps()}.
+     */
+    long steps;
+
+    /**
+     * When this was taken, from {@link System#nanoTime()}.
+     */
+    long time;
+
+    /**
+     * @param capacity How many fruit to make room for up front.
+     */
+    public PhysicsSnapshot(int capacity) {
+        capacity = Math.max(capacity, 1);
+        ids = new int[capacity];
+        types = new int[capacity];
+        transforms = new BodyTransforms(capacity);
+    }
+
+    /**
+     * Copies the fruit in {@code store} into this snapshot.
+     */
+    public void set(EntityStore store, int awake, float alpha, float stepTime, long steps, long time) {
+        int size = store.size;
+        if (types.length < size) {
+            ids = Arrays.copyOf(ids, store.ids.length);
+            types = Arrays.copyOf(types, store.types.length);
+        }
+        System.arraycopy(store.ids, 0, ids, 0, size);
+        System.arraycopy(store.types, 0, types, 0, size);
+        transforms.set(store.transforms, size);
+        this.size = size;
+        this.awake = awake;
+        this.alpha = alpha;
+        this.stepTime = stepTime;
+        this.steps = steps;
+        this.time = time;
+    }
+
+    /**
+     * @param now The current {@link System#nanoTime()}.
+     * @return How far the physics clock is between the two steps in this
+     * snapshot now, counting the time that passed since it was taken. Once
+     * the next step is overdue this stays at 1, the latest position.
+     */
+    public float getAlpha(long now) {
+        return Math.min(alpha + (now - time) / 1e9f / stepTime, 1);
+    }
+}
@@ -0,0 +1,112 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.Gdx;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Steps the world of a {@link PhysicsExample} on a thread of its own, so a
+ * slow physics step no longer holds up a frame and a slow frame no longer
+ * holds up physics. After every step the fruit is published through the
+ * example's {@link SnapshotBuffer}, which the render thread draws from.
+ *
+ * Box2D must only ever be used from one thread. Once this thread has been
+ * started, it owns the world and everything in it, and other threads have to
+ * ask for changes through the example's {@link WorldCommands} instead of
+ * making them directly.
+ *
+ * When every fruit is asleep and there is nothing left to spawn, stepping
+ * would not change anything, so the thread waits until it is woken up by
+ * {@link #wake()}. While the game is paused, for example because it is in
+ * the background on Android, the thread waits as well, see
+ * {@link #setPaused(boolean)}.
+ */
+public class PhysicsThread extends Thread {
+    private final PhysicsExample example;
+    private volatile boolean running = true;
+    private volatile boolean paused;
+
+    public PhysicsThread(PhysicsExample example) {
+        super("Physics");
+        this.example = example;
+        setDaemon(true);
+    }
+
+    /**
+     * Makes the thread check for work again if it is waiting. Call this after
+     * asking for a change to the world. Can be called from any thread.
+     */
+    public void wake() {
+        LockSupport.unpark(this);
+    }
+
+    /**
+     * While paused, the thread waits once it has finished its current step.
+     * When it is unpaused, the time that passed in between is not simulated.
+     * Can be called from any thread.
+     */
+    public void setPaused(boolean paused) {
+        this.paused = paused;
+        if (!paused) LockSupport.unpark(this);
+    }
+
+    /**
+     * Stops the thread and waits for it to finish its current step. After
+     * this the world may be used from the calling thread again.
+     */
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(this);
+        boolean interrupted = false;
+        while (isAlive()) {
+            try {
+                join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    @Override
+    public void run() {
+        long last = System.nanoTime();
+        while (running) {
+            if (paused) {
+                LockSupport.park(this);
+                if (!paused) {
+                    // neither the time spent paused nor what was owed before
+                    // must be simulated all at once
+                    example.timestep.reset();
+                    last = System.nanoTime();
+                }
+                continue;
+            }
+
+            long now = System.nanoTime();
+            float delta = (now - last) / 1e9f;
+            last = now;
+
+            example.updateSpawner(delta);
+            example.stepWorld(delta);
+
+            // let the render thread know there is something new to draw, in
+            // case it stopped rendering continuously
+            if (example.awakeFruit > 0 && !paused) Gdx.graphics.requestRendering();
+
+            if (isIdle()) {
+                LockSupport.park(this);
+                // the time spent waiting must not be simulated all at once
+                last = System.nanoTime();
+            } else {
+                FixedTimestep timestep = example.timestep;
+                float untilNextStep = timestep.getStepTime() - timestep.getAccumulator();
+                LockSupport.parkNanos(this, (long) (untilNextStep * 1e9f));
+            }
+        }
+    }
+
+    private boolean isIdle() {
+        return running && example.awakeFruit == 0 && example.spawner.isDone() && !example.hasPendingChanges();
+    }
+}
@@ -0,0 +1,70 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Batch;
+
+/**
+ * Collects quads written by {@link SpriteTemplate} and hands them to a
+ * {@link Batch} in large chunks, instead of one call per sprite. Quads that
+ * share a texture are sent together; a new texture sends what has been
+ * collected so far first.
+ */
+public class QuadBuffer {
+    final float[] vertices;
+    int size;
+    Texture texture;
+
+    /**
+     * @param quads How many quads to collect before passing them on.
+     */
+    public QuadBuffer(int quads) {
+        vertices = new float[quads * SpriteTemplate.QUAD_SIZE];
+    }
+
+    /**
+     * Adds a quad for a body drawn with {@code template}.
+     *
+     * @param batch    The batch to send full chunks to. It must be drawing.
+     * @param template What to draw.
+     * @param x        X position of the body in meters.
+     * @param y        Y position of the body in meters.
+     * @param cos      Cosine of the body's rotation.
+     * @param sin      Sine of the body's rotation.
+     */
+    public void add(Batch batch, SpriteTemplate template, float x, float y, float cos, float sin) {
+        if (template.texture != texture || size == vertices.length) {
+            flush(batch);
+            texture = template.texture;
+        }
+        template.write(vertices, size, x, y, cos, sin);
+        size += SpriteTemplate.QUAD_SIZE;
+    }
+
+    /**
+     * Adds a quad that was written earlier, for example by a {@link QuadCache}.
+     *
+     * @param batch   The batch to send full chunks to. It must be drawing.
+     * @param texture The texture the quad uses.
+     * @param quad    Where to copy the quad from.
+     * @param offset  Where in {@code quad} it starts.
+     */
+    public void add(Batch batch, Texture texture, float[] quad, int offset) {
+        if (texture != this.texture || size == vertices.length) {
+            flush(batch);
+            this.texture = texture;
+        }
+        System.arraycopy(quad, offset, vertices, size, SpriteTemplate.QUAD_SIZE);
+        size += SpriteTemplate.QUAD_SIZE;
+    }
+
+    /**
+     * Sends every collected quad to {@code batch}. Call this before
+     * {@code batch.end()}.
+     */
+    public void flush(Batch batch) {
+        if (size > 0) {
+            batch.draw(texture, vertices, 0, size);
+            size = 0;
+        }
+    }
+}
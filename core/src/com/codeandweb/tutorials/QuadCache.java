@@ -0,0 +1,73 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.math.MathUtils;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the last quad written for each body, together with the transform it
+ * was written for. Once the pile settles most fruit is asleep and does not
+ * move at all, so its quad can be copied as it is instead of being rotated
+ * and moved again every frame.
+ *
+ * A cached quad is only used when the template and the transform still
+ * match exactly, so a body that wakes up and moves is never drawn from a
+ * stale entry, and neither is a different fruit that has taken over the
+ * slot, for example after another fruit was despawned.
+ */
+public class QuadCache {
+    float[] vertices;
+
+    /**
+     * The x, y and angle each quad was written for, {@link BodyTransforms#STRIDE}
+     * floats per body. Starts out as NaN, which never matches anything.
+     */
+    float[] keys;
+
+    /**
+     * The template each quad was written with, or null.
+     */
+    SpriteTemplate[] templates;
+
+    /**
+     * @param capacity How many bodies to cache quads for.
+     */
+    public QuadCache(int capacity) {
+        vertices = new float[capacity * SpriteTemplate.QUAD_SIZE];
+        keys = new float[capacity * BodyTransforms.STRIDE];
+        Arrays.fill(keys, Float.NaN);
+        templates = new SpriteTemplate[capacity];
+    }
+
+    /**
+     * Makes room for at least {@code capacity} bodies, keeping what is cached.
+     */
+    public void ensureCapacity(int capacity) {
+        int size = keys.length / BodyTransforms.STRIDE;
+        if (capacity <= size) return;
+        vertices = Arrays.copyOf(vertices, capacity * SpriteTemplate.QUAD_SIZE);
+        keys = Arrays.copyOf(keys, capacity * BodyTransforms.STRIDE);
+        Arrays.fill(keys, size * BodyTransforms.STRIDE, keys.length, Float.NaN);
+        templates = Arrays.copyOf(templates, capacity);
+    }
+
+    /**
+     * Makes sure the cached quad for body {@code i} matches the given
+     * template and transform, writing it with {@code template} if it does
+     * not.
+     *
+     * @return Where the quad for body {@code i} starts in {@link #vertices}.
+     */
+    public int update(int i, SpriteTemplate template, float x, float y, float angle) {
+        int offset = i * SpriteTemplate.QUAD_SIZE;
+        int key = i * BodyTransforms.STRIDE;
+        if (templates[i] != template || keys[key] != x || keys[key + 1] != y || keys[key + 2] != angle) {
+            template.write(vertices, offset, x, y, MathUtils.cos(angle), MathUtils.sin(angle));
+            templates[i] = template;
+            keys[key] = x;
+            keys[key + 1] = y;
+            keys[key + 2] = angle;
+        }
+        return offset;
+    }
+}
@@ -0,0 +1,72 @@
+package com.codeandweb.tutorials;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hands {@link PhysicsSnapshot}s from the physics thread to the render thread
+ * without either of them ever waiting. There are three snapshots: the writer
+ * fills the back one, the reader draws the front one, and the third sits in
+ * the middle holding the newest finished snapshot.
+ *
+ * Publishing swaps the back snapshot with the middle one, and reading swaps
+ * the front one with the middle one if it holds something new. Each swap is
+ * a single atomic operation on {@link #middle}, so there are no locks, and
+ * the writer can publish many times while the reader is still busy with one
+ * snapshot. The reader then simply gets the newest.
+ */
+public class SnapshotBuffer {
+    /**
+     * Set in {@link #middle} while the middle snapshot has not been read.
+     */
+    private static final int FRESH = 4;
+    private static final int INDEX = 3;
+
+    private final PhysicsSnapshot[] snapshots = new PhysicsSnapshot[3];
+
+    /**
+     * The index of the middle snapshot, plus {@link #FRESH}.
+     */
+    private final AtomicInteger middle = new AtomicInteger(2);
+
+    /**
+     * Only used by the writer.
+     */
+    private int back = 0;
+
+    /**
+     * Only used by the reader.
+     */
+    private int front = 1;
+
+    /**
+     * @param capacity How many fruit each snapshot makes room for up front.
+     */
+    public SnapshotBuffer(int capacity) {
+        for (int i = 0; i < snapshots.length; i++) snapshots[i] = new PhysicsSnapshot(capacity);
+    }
+
+    /**
+     * @return The snapshot the writer may fill. It belongs to the writer
+     * until {@link #publish()} is called.
+     */
+    public PhysicsSnapshot back() {
+        return snapshots[back];
+    }
+
+    /**
+     * Makes the back snapshot the newest one, and gives the writer another
+     * snapshot to fill next.
+     */
+    public void publish() {
+        back = middle.getAndSet(back | FRESH) & INDEX;
+    }
+
+    /**
+     * @return The newest published snapshot. It belongs to the reader until
+     * the next call.
+     */
+    public PhysicsSnapshot read() {
+        if ((middle.get() & FRESH) != 0) front = middle.getAndSet(front) & INDEX;
+        return snapshots[front];
+    }
+}
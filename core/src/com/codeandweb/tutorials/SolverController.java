@@ -0,0 +1,163 @@
+package com.codeandweb.tutorials;
+
+/**
+ * Picks the velocity and position iterations for {@code world.step} from
+ * how long the last steps took. When a pile of fruit makes the steps take
+ * longer than the budget, the iterations are lowered one at a time, which
+ * makes stacks a little softer but keeps the frame rate. Once the steps are
+ * well within the budget again, they are raised back up.
+ *
+ * Three things keep the iterations from going back and forth. Decisions are
+ * only made on the average of a whole window of steps, and the window starts
+ * over after each change, so the steps at the new setting are measured
+ * before deciding again. The iterations are only raised again when the
+ * steps take less than {@link #RAISE_BELOW} of the budget, so an extra
+ * iteration does not push them right back over it. And they are only raised
+ * after {@link #RAISE_WINDOWS} quiet windows in a row, while a single slow
+ * window lowers them.
+ *
+ * Only the thread that steps the world calls {@link #update(long)}. The
+ * settings and decisions can be read from any thread.
+ */
+public class SolverController {
+    /**
+     * How many steps are averaged before each decision.
+     */
+    static final int WINDOW = 30;
+
+    /**
+     * The iterations are only raised when the average step takes less than
+     * this part of the budget.
+     */
+    static final float RAISE_BELOW = 0.6f;
+
+    /**
+     * How many windows in a row must be below {@link #RAISE_BELOW} before
+     * the iterations are raised.
+     */
+    static final int RAISE_WINDOWS = 4;
+
+    private final long budgetNanos;
+    private final int minVelocityIterations;
+    private final int maxVelocityIterations;
+    private final int minPositionIterations;
+    private final int maxPositionIterations;
+
+    private volatile int velocityIterations;
+    private volatile int positionIterations;
+
+    private long windowNanos;
+    private int windowSteps;
+    private int quietWindows;
+
+    private volatile long averageNanos;
+    private volatile long lowered;
+    private volatile long raised;
+
+    /**
+     * Starts at the highest iterations, and lowers the velocity iterations
+     * before the position iterations, since those matter more for how
+     * stacked fruit overlaps.
+     *
+     * @param budgetNanos How long one step may take on average, in
+     *                    nanoseconds.
+     */
+    public SolverController(long budgetNanos, int minVelocityIterations, int maxVelocityIterations,
+                            int minPositionIterations, int maxPositionIterations) {
+        if (minVelocityIterations < 1 || minVelocityIterations > maxVelocityIterations
+                || minPositionIterations < 1 || minPositionIterations > maxPositionIterations) {
+            throw new IllegalArgumentException("Invalid iteration bounds");
+        }
+        this.budgetNanos = budgetNanos;
+        this.minVelocityIterations = minVelocityIterations;
+        this.maxVelocityIterations = maxVelocityIterations;
+        this.minPositionIterations = minPositionIterations;
+        this.maxPositionIterations = maxPositionIterations;
+        velocityIterations = maxVelocityIterations;
+        positionIterations = maxPositionIterations;
+    }
+
+    /**
+     * Call this after every step.
+     *
+     * @param stepNanos How long the step took, in nanoseconds.
+     */
+    public void update(long stepNanos) {
+        windowNanos += stepNanos;
+        if (++windowSteps < WINDOW) return;
+
+        long average = windowNanos / windowSteps;
+        averageNanos = average;
+        windowNanos = 0;
+        windowSteps = 0;
+
+        if (average > budgetNanos) {
+            quietWindows = 0;
+            lower();
+        } else if (average < budgetNanos * RAISE_BELOW) {
+            if (++quietWindows >= RAISE_WINDOWS) {
+                quietWindows = 0;
+                raise();
+            }
+        } else {
+            quietWindows = 0;
+        }
+    }
+
+    private void lower() {
+        if (velocityIterations > minVelocityIterations) {
+            velocityIterations--;
+        } else if (positionIterations > minPositionIterations) {
+            positionIterations--;
+        } else {
+            return;
+        }
+        lowered++;
+    }
+
+    private void raise() {
+        // undo the changes in the opposite order
+        if (positionIterations < maxPositionIterations) {
+            positionIterations++;
+        } else if (velocityIterations < maxVelocityIterations) {
+            velocityIterations++;
+        } else {
+            return;
+        }
+        raised++;
+    }
+
+    public int getVelocityIterations() {
+        return velocityIterations;
+    }
+
+    public int getPositionIterations() {
+        return positionIterations;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /**
+     * @return The average step time of the last complete window, in
+     * nanoseconds.
+     */
+    public long getAverageNanos() {
+        return averageNanos;
+    }
+
+    /**
+     * @return How many times an iteration count has been lowered.
+     */
+    public long getLowered() {
+        return lowered;
+    }
+
+    /**
+     * @return How many times an iteration count has been raised.
+     */
+    public long getRaised() {
+        return raised;
+    }
+}
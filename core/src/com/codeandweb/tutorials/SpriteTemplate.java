@@ -0,0 +1,99 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.Sprite;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+
+/**
+ * The vertices of a {@link Sprite} with its position and rotation taken out,
+ * so one template can be drawn for any number of bodies without changing
+ * anything shared.
+ *
+ * {@link Sprite#draw(com.badlogic.gdx.graphics.g2d.Batch)} rebuilds its
+ * vertices every time the position or rotation changes. All fruit of one kind
+ * shares a single sprite, so that happened for every fruit, every frame.
+ * Instead, the corners are worked out once, relative to the body's origin,
+ * and {@link #write(float[], int, float, float, float, float)} only has to
+ * rotate and move them.
+ */
+public class SpriteTemplate {
+    /**
+     * How many floats one quad takes up in a {@link SpriteBatch}.
+     */
+    public static final int QUAD_SIZE = 20;
+
+    /**
+     * How many floats each corner takes up: x, y, color, u, v.
+     */
+    private static final int VERTEX_SIZE = 5;
+
+    /**
+     * The texture the sprite's region is on.
+     */
+    final Texture texture;
+
+    /**
+     * The sprite's vertices with the body at the origin and not rotated.
+     * The color and texture coordinates are copied as they are.
+     */
+    final float[] local = new float[QUAD_SIZE];
+
+    /**
+     * How far the furthest corner is from the body's origin. However the body
+     * is rotated, the sprite stays within this distance of it.
+     */
+    final float radius;
+
+    /**
+     * @param sprite A sprite that is already scaled and has its origin where
+     *               the body's origin is. It is left as it was.
+     */
+    public SpriteTemplate(Sprite sprite) {
+        texture = sprite.getTexture();
+
+        float x = sprite.getX(), y = sprite.getY(), rotation = sprite.getRotation();
+        sprite.setPosition(0, 0);
+        sprite.setRotation(0);
+        System.arraycopy(sprite.getVertices(), 0, local, 0, QUAD_SIZE);
+        sprite.setPosition(x, y);
+        sprite.setRotation(rotation);
+
+        float radius2 = 0;
+        for (int i = 0; i < QUAD_SIZE; i += VERTEX_SIZE) {
+            radius2 = Math.max(radius2, local[i] * local[i] + local[i + 1] * local[i + 1]);
+        }
+        radius = (float) Math.sqrt(radius2);
+    }
+
+    /**
+     * @return Whether a body at {@code x}, {@code y} would draw anything
+     * inside the rectangle from {@code left}, {@code bottom} to {@code right},
+     * {@code top}. This may say yes for a sprite that just misses a corner.
+     */
+    public boolean overlaps(float x, float y, float left, float bottom, float right, float top) {
+        return x + radius > left && x - radius < right && y + radius > bottom && y - radius < top;
+    }
+
+    /**
+     * Writes the quad for a body into {@code vertices}.
+     *
+     * @param vertices Where to write the quad.
+     * @param offset   Where in {@code vertices} the quad starts.
+     * @param x        X position of the body in meters.
+     * @param y        Y position of the body in meters.
+     * @param cos      Cosine of the body's rotation.
+     * @param sin      Sine of the body's rotation.
+     */
+    public void write(float[] vertices, int offset, float x, float y, float cos, float sin) {
+        float[] local = this.local;
+        for (int i = 0; i < QUAD_SIZE; i += VERTEX_SIZE) {
+            float localX = local[i];
+            float localY = local[i + 1];
+            vertices[offset + i] = x + localX * cos - localY * sin;
+            vertices[offset + i + 1] = y + localX * sin + localY * cos;
+            vertices[offset + i + 2] = local[i + 2];
+            vertices[offset + i + 3] = local[i + 3];
+            vertices[offset + i + 4] = local[i + 4];
+        }
+    }
+}
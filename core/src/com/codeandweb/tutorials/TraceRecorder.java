@@ -0,0 +1,280 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.math.MathUtils;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Keeps the last few thousand phases of a {@link FrameProfiler}, on every
+ * thread, and writes them to a file in the Chrome trace event format. Open
+ * the file in https://ui.perfetto.dev or chrome://tracing to see every
+ * frame and physics step on a timeline.
+ *
+ * The phases are kept in arrays that are allocated up front and overwritten
+ * in a circle, so recording costs a few array writes and never allocates.
+ * A trace is written when a frame takes longer than the hitch threshold, so
+ * the file shows what led up to the slow frame, or when
+ * {@link #requestDump()} is called.
+ *
+ * The frame that asks for a trace only copies the phases into a second set
+ * of arrays. Turning them into text and writing the file happens on a
+ * thread of its own, so tracing a hitch does not cause another one. While
+ * that thread is still busy with one trace, hitches do not start another.
+ */
+public class TraceRecorder implements FrameProfiler.Listener {
+    /**
+     * Traces are written at most this often, in nanoseconds, so a run of
+     * slow frames does not write a file for each of them.
+     */
+    static final long MIN_DUMP_INTERVAL = 1000000000L;
+
+    private final int mask;
+    private final long[] starts;
+    private final long[] ends;
+    private final int[] phases;
+    private final String[] names;
+    private final Thread[] threads;
+
+    /**
+     * The event each slot holds, or -1 while it is being written.
+     */
+    private final AtomicLongArray sequences;
+    private final AtomicLong next = new AtomicLong();
+
+    /**
+     * The phases of the trace that is being written. Filled in by the frame
+     * that asks for a trace while {@link #writing} is false, and only read
+     * by the writer thread while it is true.
+     */
+    private final long[] copiedStarts;
+    private final long[] copiedEnds;
+    private final int[] copiedPhases;
+    private final String[] copiedNames;
+    private final Thread[] copiedThreads;
+    private int copied;
+    private boolean copiedHitch;
+
+    /**
+     * Whether the writer thread has a trace to write. Guarded by this.
+     */
+    private boolean writing;
+    private Thread writer;
+
+    private final FileHandle directory;
+    private final long hitchNanos;
+    private final long origin = System.nanoTime();
+    private volatile boolean dumpRequested;
+    private long lastDump = origin - MIN_DUMP_INTERVAL;
+    private volatile int dumps;
+
+    /**
+     * @param capacity   How many phases to keep, rounded up to a power of two.
+     * @param directory  Where to write the traces to.
+     * @param hitchNanos How long a frame may take before a trace is written,
+     *                   in nanoseconds.
+     */
+    public TraceRecorder(int capacity, FileHandle directory, long hitchNanos) {
+        capacity = MathUtils.nextPowerOfTwo(Math.max(capacity, 2));
+        mask = capacity - 1;
+        starts = new long[capacity];
+        ends = new long[capacity];
+        phases = new int[capacity];
+        names = new String[capacity];
+        threads = new Thread[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) sequences.set(i, -1);
+        copiedStarts = new long[capacity];
+        copiedEnds = new long[capacity];
+        copiedPhases = new int[capacity];
+        copiedNames = new String[capacity];
+        copiedThreads = new Thread[capacity];
+        this.directory = directory;
+        this.hitchNanos = hitchNanos;
+    }
+
+    /**
+     * @return How many traces have been written.
+     */
+    public int getDumps() {
+        return dumps;
+    }
+
+    /**
+     * Writes a trace once the current frame is over. Can be called from any
+     * thread.
+     */
+    public void requestDump() {
+        dumpRequested = true;
+    }
+
+    @Override
+    public void begin(int phase) {
+        // phases are written as a whole once they end
+    }
+
+    @Override
+    public void end(int phase, long start, long end, String name) {
+        long event = next.getAndIncrement();
+        int slot = (int) (event & mask);
+        sequences.getAndSet(slot, -1);
+        starts[slot] = start;
+        ends[slot] = end;
+        phases[slot] = phase;
+        names[slot] = name;
+        threads[slot] = Thread.currentThread();
+        sequences.set(slot, event);
+
+        if (phase != FrameProfiler.FRAME) return;
+        boolean hitch = end - start > hitchNanos && end - lastDump >= MIN_DUMP_INTERVAL;
+        if (hitch || dumpRequested) {
+            synchronized (this) {
+                // a requested trace waits for the writer, a hitch is dropped
+                if (writing) return;
+                dumpRequested = false;
+                lastDump = end;
+                copy(hitch);
+                writing = true;
+                if (writer == null || !writer.isAlive()) startWriter();
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Copies every phase that is kept right now. Phases that are being
+     * recorded on another thread at the same moment are left out.
+     */
+    private void copy(boolean hitch) {
+        long last = next.get();
+        int count = 0;
+        for (long event = Math.max(0, last - starts.length); event < last; event++) {
+            int slot = (int) (event & mask);
+            if (sequences.get(slot) != event) continue;
+            copiedStarts[count] = starts[slot];
+            copiedEnds[count] = ends[slot];
+            copiedPhases[count] = phases[slot];
+            copiedNames[count] = names[slot];
+            copiedThreads[count] = threads[slot];
+            if (sequences.get(slot) != event) continue;
+            count++;
+        }
+        copied = count;
+        copiedHitch = hitch;
+    }
+
+    private void startWriter() {
+        writer = new Thread("Trace Writer") {
+            @Override
+            public void run() {
+                StringBuilder json = new StringBuilder(64 + copiedStarts.length * 110);
+                while (true) {
+                    synchronized (TraceRecorder.this) {
+                        while (!writing) {
+                            try {
+                                TraceRecorder.this.wait();
+                            } catch (InterruptedException e) {
+                                return;
+                            }
+                        }
+                    }
+                    FileHandle file = directory.child((copiedHitch ? "hitch-" : "trace-") + (dumps + 1) + ".json");
+                    try {
+                        json.setLength(0);
+                        writeCopy(json);
+                        file.writeString(json.toString(), false, "UTF-8");
+                        dumps++;
+                    } catch (RuntimeException e) {
+                        // keep going, the next trace may well be written
+                        Gdx.app.error("TraceRecorder", "Could not write " + file, e);
+                    } finally {
+                        synchronized (TraceRecorder.this) {
+                            writing = false;
+                            // write() may be waiting for this trace to be done
+                            TraceRecorder.this.notifyAll();
+                        }
+                    }
+                }
+            }
+        };
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Writes every phase that is kept right now to a file, on the calling
+     * thread. Phases that are being recorded on another thread at the same
+     * moment may be left out.
+     */
+    public synchronized void write(FileHandle file) {
+        boolean interrupted = false;
+        while (writing) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        copy(false);
+        StringBuilder json = new StringBuilder(64 + copiedStarts.length * 110);
+        writeCopy(json);
+        file.writeString(json.toString(), false, "UTF-8");
+    }
+
+    private void writeCopy(StringBuilder json) {
+        json.append("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+
+        ArrayList<Thread> seen = new ArrayList<Thread>();
+        boolean first = true;
+        for (int i = 0; i < copied; i++) {
+            Thread thread = copiedThreads[i];
+            long start = copiedStarts[i];
+            String name = copiedNames[i];
+            if (!seen.contains(thread)) seen.add(thread);
+            if (!first) json.append(',');
+            first = false;
+            json.append("{\"name\":\"").append(FrameProfiler.NAMES[copiedPhases[i]])
+                    .append("\",\"ph\":\"X\",\"pid\":1,\"tid\":").append(thread.getId())
+                    .append(",\"ts\":");
+            appendMicros(json, start - origin);
+            json.append(",\"dur\":");
+            appendMicros(json, copiedEnds[i] - start);
+            if (name != null) json.append(",\"args\":{\"name\":\"").append(escape(name)).append("\"}");
+            json.append('}');
+        }
+
+        // name the threads, so the timeline shows "Physics" rather than a number
+        for (Thread thread : seen) {
+            if (!first) json.append(',');
+            first = false;
+            json.append("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":").append(thread.getId())
+                    .append(",\"args\":{\"name\":\"").append(escape(thread.getName())).append("\"}}");
+        }
+
+        json.append("]}\n");
+    }
+
+    /**
+     * Appends nanoseconds as microseconds with three decimals.
+     */
+    private static void appendMicros(StringBuilder json, long nanos) {
+        if (nanos < 0) {
+            json.append('-');
+            nanos = -nanos;
+        }
+        long fraction = nanos % 1000;
+        json.append(nanos / 1000).append('.');
+        if (fraction < 100) json.append('0');
+        if (fraction < 10) json.append('0');
+        json.append(fraction);
+    }
+
+    private static String escape(String text) {
+        return text.replace("\\", "\\\\").replace("\"", "\\\"");
+    }
+}
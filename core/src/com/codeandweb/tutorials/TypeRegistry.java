@@ -0,0 +1,107 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.physics.box2d.World;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Gives every kind of fruit a small number, its id, and keeps what we know
+ * about each kind in arrays indexed by that id. Names are only looked up
+ * while setting up; after that, spawning and drawing use ids, which is a
+ * plain array access instead of hashing a string.
+ */
+public class TypeRegistry {
+    private final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+
+    /**
+     * How many types have been registered. Ids go from 0 to one less than this.
+     */
+    int size;
+
+    /**
+     * The name of each type, as it appears in the atlas and in the XML.
+     */
+    String[] names = new String[8];
+
+    /**
+     * How to draw each type.
+     */
+    SpriteTemplate[] sprites = new SpriteTemplate[8];
+
+    /**
+     * How to create the body of each type. These are filled in the first time
+     * a type is spawned, see {@link #body(int, BodyFactory, World, float, float)}.
+     */
+    BodyFactory.Template[] bodies = new BodyFactory.Template[8];
+
+    /**
+     * Adds a type, or replaces the sprite of a type that is already known.
+     *
+     * @return The type's id.
+     */
+    public int register(String name, SpriteTemplate sprite) {
+        Integer existing = ids.get(name);
+        if (existing != null) {
+            sprites[existing] = sprite;
+            return existing;
+        }
+
+        if (size == names.length) {
+            int capacity = size * 2;
+            names = Arrays.copyOf(names, capacity);
+            sprites = Arrays.copyOf(sprites, capacity);
+            bodies = Arrays.copyOf(bodies, capacity);
+        }
+        int id = size++;
+        names[id] = name;
+        sprites[id] = sprite;
+        ids.put(name, id);
+        return id;
+    }
+
+    /**
+     * @return The id of the type with this name, or -1 if there is none.
+     */
+    public int id(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * @return The ids of all of these types.
+     * @throws IllegalArgumentException If one of the names is not registered.
+     */
+    public int[] ids(String... names) {
+        int[] result = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            result[i] = id(names[i]);
+            if (result[i] < 0) throw new IllegalArgumentException("Unknown type: " + names[i]);
+        }
+        return result;
+    }
+
+    /**
+     * @return How to create the body of type {@code id}, asking
+     * {@code factory} for it the first time.
+     */
+    public BodyFactory.Template body(int id, BodyFactory factory, World world, float scaleX, float scaleY) {
+        BodyFactory.Template body = bodies[id];
+        if (body == null || body.scaleX != scaleX || body.scaleY != scaleY) {
+            body = factory.template(names[id], world, scaleX, scaleY);
+            bodies[id] = body;
+        }
+        return body;
+    }
+
+    /**
+     * Forgets every type.
+     */
+    public void clear() {
+        ids.clear();
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(sprites, 0, size, null);
+        Arrays.fill(bodies, 0, size, null);
+        size = 0;
+    }
+}
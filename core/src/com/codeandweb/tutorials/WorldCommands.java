@@ -0,0 +1,181 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.math.MathUtils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Changes to the world that any thread may ask for, waiting for the thread
+ * that steps the world to make them. Box2D crashes when the world is changed
+ * during a step or from two threads at once, so input handlers, AI or network
+ * code put commands in here, and {@link PhysicsExample#stepWorld(float)}
+ * carries them all out in one go before it steps.
+ *
+ * The queue has a fixed number of slots that are reused over and over, so
+ * submitting a command never allocates. Every slot has a sequence number
+ * that says whose turn it is: a thread that wants to submit claims the next
+ * position with a single compare-and-set, writes its command into the slot,
+ * and then bumps the slot's sequence number so the reader knows it is ready.
+ * Any number of threads can submit at the same time without locks. When
+ * every slot is taken, submitting fails instead of waiting.
+ *
+ * A command is stored as its kind, the entity it is about and up to three
+ * numbers, each in an array of its own.
+ */
+public class WorldCommands {
+    /**
+     * Spawns a fruit: type in the target, then x, y and rotation.
+     */
+    static final int SPAWN = 0;
+
+    /**
+     * Despawns the target fruit.
+     */
+    static final int DESTROY = 1;
+
+    /**
+     * Pushes the target fruit at its center of mass: impulse x and y.
+     */
+    static final int IMPULSE = 2;
+
+    /**
+     * Moves the target fruit: x, y and rotation.
+     */
+    static final int TRANSFORM = 3;
+
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final int[] kinds;
+    private final int[] targets;
+    private final int[] ids;
+    private final float[] values;
+
+    /**
+     * The position the next submitted command goes to.
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The position of the next command to carry out. Only used by the thread
+     * that steps the world.
+     */
+    private long head;
+
+    /**
+     * How many commands could not be submitted because the queue was full,
+     * or were turned away by {@link #reject()}.
+     */
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * How many commands have been carried out.
+     */
+    long executed;
+
+    /**
+     * @param capacity How many commands can wait at once. Rounded up to a
+     *                 power of two.
+     */
+    public WorldCommands(int capacity) {
+        capacity = MathUtils.nextPowerOfTwo(Math.max(capacity, 2));
+        mask = capacity - 1;
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) sequences.set(i, i);
+        kinds = new int[capacity];
+        targets = new int[capacity];
+        ids = new int[capacity];
+        values = new float[capacity * 3];
+    }
+
+    /**
+     * Adds a command. Can be called from any thread.
+     *
+     * @param kind   One of {@link #SPAWN}, {@link #DESTROY}, {@link #IMPULSE}
+     *               or {@link #TRANSFORM}.
+     * @param target The entity id, or for {@link #SPAWN} the type id.
+     * @param id     For {@link #SPAWN}, the entity id the new fruit gets.
+     * @return Whether there was room for the command.
+     */
+    public boolean submit(int kind, int target, int id, float a, float b, float c) {
+        long position;
+        int slot;
+        while (true) {
+            position = tail.get();
+            slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) break;
+            } else if (sequence < position) {
+                // the reader has not got to this slot since the last time round
+                rejected.incrementAndGet();
+                return false;
+            }
+            // another thread took this position first, try the next one
+        }
+
+        kinds[slot] = kind;
+        targets[slot] = target;
+        ids[slot] = id;
+        int offset = slot * 3;
+        values[offset] = a;
+        values[offset + 1] = b;
+        values[offset + 2] = c;
+
+        // makes the writes above visible to the reader together with the slot
+        sequences.lazySet(slot, position + 1);
+        return true;
+    }
+
+    /**
+     * @return Whether no command is waiting. A command that is still being
+     * written counts as waiting.
+     */
+    public boolean isEmpty() {
+        return tail.get() == head;
+    }
+
+    /**
+     * Counts a command that was turned away before it was submitted, for
+     * example because it was about a fruit type that does not exist. Can be
+     * called from any thread.
+     */
+    public void reject() {
+        rejected.incrementAndGet();
+    }
+
+    /**
+     * @return How many commands were turned away because the queue was full
+     * or they were invalid.
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * Carries out every command that is ready, in the order they were
+     * submitted. Must only be called by the thread that steps the world, and
+     * never during a step.
+     *
+     * @return How many commands were carried out.
+     */
+    public int execute(PhysicsExample example) {
+        int count = 0;
+        while (true) {
+            long position = head;
+            int slot = (int) position & mask;
+            if (sequences.get(slot) != position + 1) break;
+
+            int offset = slot * 3;
+            example.executeCommand(kinds[slot], targets[slot], ids[slot], values[offset], values[offset + 1],
+                    values[offset + 2]);
+
+            // hands the slot back to the writers for their next time round
+            sequences.lazySet(slot, position + mask + 1);
+            head = position + 1;
+            count++;
+        }
+        executed += count;
+        return count;
+    }
+}
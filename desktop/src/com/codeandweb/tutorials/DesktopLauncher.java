@@ -2,14 +2,44 @@ package com.codeandweb.tutorials;
 
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3Application;
 import com.badlogic.gdx.backends.lwjgl3.Lwjgl3ApplicationConfiguration;
+import com.badlogic.gdx.files.FileHandle;
 import com.codeandweb.tutorials.PhysicsExample;
 
 // Please note that on macOS your application needs to be started with the -XstartOnFirstThread JVM argument
 public class DesktopLauncher {
+	/** Seconds between two lines of frame timings in the profile file. */
+	static final float PROFILE_INTERVAL = 5;
+
+	/** How many phases the trace keeps, a few seconds' worth. */
+	static final int TRACE_CAPACITY = 8192;
+
+	/** A frame that takes longer than one step at 60 frames per second writes a trace. */
+	static final long HITCH_NANOS = (long)(PhysicsExample.STEP_TIME * 1e9);
+
+	/**
+	 * Optional arguments: {@code --profile <file>} appends the frame timings
+	 * to a CSV file, see {@link FrameProfiler}. {@code --trace <directory>}
+	 * writes a trace of the last frames to that directory after every hitch
+	 * and whenever F9 is pressed, see {@link TraceRecorder}.
+	 */
 	public static void main (String[] arg) {
 		Lwjgl3ApplicationConfiguration config = new Lwjgl3ApplicationConfiguration();
 		config.setForegroundFPS(60);
 		config.setTitle("libgdx-physics-example");
-		new Lwjgl3Application(new PhysicsExample(), config);
+		PhysicsExample example = new PhysicsExample();
+		example.profiler.addListener(new FlightRecorderEvents(example));
+		for (int i = 0; i + 1 < arg.length; i += 2) {
+			if (arg[i].equals("--profile")) {
+				example.profiler.setCsvFile(new FileHandle(arg[i + 1]), PROFILE_INTERVAL);
+			} else if (arg[i].equals("--trace")) {
+				FileHandle directory = new FileHandle(arg[i + 1]);
+				directory.mkdirs();
+				example.traceRecorder = new TraceRecorder(TRACE_CAPACITY, directory, HITCH_NANOS);
+				example.profiler.addListener(example.traceRecorder);
+			} else {
+				throw new IllegalArgumentException("Unknown option: " + arg[i]);
+			}
+		}
+		new Lwjgl3Application(example, config);
 	}
 }
@@ -0,0 +1,167 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.World;
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.FlightRecorder;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Period;
+import jdk.jfr.Timespan;
+
+/**
+ * Passes the physics steps, batch flushes, asset loading and solver
+ * iterations of a {@link PhysicsExample} on to Java Flight Recorder, so they
+ * show up in a recording next to garbage collection and JIT compilation.
+ * Start the game with {@code -XX:StartFlightRecording} and open the
+ * recording in JDK Mission Control to find the events under "Physics
+ * Example".
+ *
+ * While an event is not being recorded, beginning and ending its phase
+ * only checks a flag, and nothing is allocated.
+ */
+public class FlightRecorderEvents implements FrameProfiler.Listener {
+	@Name("com.codeandweb.tutorials.Step")
+	@Label("World Step")
+	@Category("Physics Example")
+	@Description("One world.step of the physics simulation")
+	static class StepEvent extends Event {
+		@Label("Bodies") int bodies;
+		@Label("Awake Fruit") int awake;
+		@Label("Contacts") int contacts;
+		@Label("Velocity Iterations") int velocityIterations;
+		@Label("Position Iterations") int positionIterations;
+	}
+
+	@Name("com.codeandweb.tutorials.Solver")
+	@Label("Solver Iterations")
+	@Category("Physics Example")
+	@Description("The iterations the solver controller picked, and how often it changed them")
+	@Period("1 s")
+	static class SolverEvent extends Event {
+		@Label("Velocity Iterations") int velocityIterations;
+		@Label("Position Iterations") int positionIterations;
+		@Label("Lowered") long lowered;
+		@Label("Raised") long raised;
+		@Label("Average Step") @Timespan(Timespan.NANOSECONDS) long averageStep;
+		@Label("Step Budget") @Timespan(Timespan.NANOSECONDS) long budget;
+	}
+
+	@Name("com.codeandweb.tutorials.Flush")
+	@Label("Batch Flush")
+	@Category("Physics Example")
+	@Description("Passing the last quads to the sprite batch and ending it")
+	static class FlushEvent extends Event {
+		@Label("Render Calls") int renderCalls;
+		@Label("Fruit Drawn") int drawn;
+	}
+
+	@Name("com.codeandweb.tutorials.Load")
+	@Label("Asset Load")
+	@Category("Physics Example")
+	@Description("Loading an asset while the game starts")
+	static class LoadEvent extends Event {
+		@Label("Asset") String asset;
+	}
+
+	private static final EventType STEP = EventType.getEventType(StepEvent.class);
+	private static final EventType FLUSH = EventType.getEventType(FlushEvent.class);
+	private static final EventType LOAD = EventType.getEventType(LoadEvent.class);
+
+	private final PhysicsExample example;
+
+	/** The event of each phase that is being recorded right now. Each phase only ever runs on one thread. */
+	private StepEvent step;
+	private FlushEvent flush;
+	private LoadEvent load;
+
+	public FlightRecorderEvents (final PhysicsExample example) {
+		this.example = example;
+		// read once a second while recording, since the settings only change every few steps
+		FlightRecorder.addPeriodicEvent(SolverEvent.class, new Runnable() {
+			@Override
+			public void run () {
+				SolverController solver = example.solver;
+				SolverEvent event = new SolverEvent();
+				event.velocityIterations = solver.getVelocityIterations();
+				event.positionIterations = solver.getPositionIterations();
+				event.lowered = solver.getLowered();
+				event.raised = solver.getRaised();
+				event.averageStep = solver.getAverageNanos();
+				event.budget = solver.getBudgetNanos();
+				event.commit();
+			}
+		});
+	}
+
+	@Override
+	public void begin (int phase) {
+		switch (phase) {
+		case FrameProfiler.STEP:
+			if (STEP.isEnabled()) {
+				step = new StepEvent();
+				// stepWorld reads the iterations right before the phase begins, so these are the ones this step uses
+				step.velocityIterations = example.solver.getVelocityIterations();
+				step.positionIterations = example.solver.getPositionIterations();
+				step.begin();
+			}
+			break;
+		case FrameProfiler.FLUSH:
+			if (FLUSH.isEnabled()) (flush = new FlushEvent()).begin();
+			break;
+		case FrameProfiler.LOAD:
+			if (LOAD.isEnabled()) (load = new LoadEvent()).begin();
+			break;
+		}
+	}
+
+	@Override
+	public void end (int phase, long start, long end, String name) {
+		switch (phase) {
+		case FrameProfiler.STEP:
+			if (step == null) return;
+			step.end();
+			if (step.shouldCommit()) {
+				World world = example.world;
+				step.bodies = world.getBodyCount();
+				step.contacts = world.getContactCount();
+				step.awake = countAwake(example.fruit);
+				step.commit();
+			}
+			step = null;
+			break;
+		case FrameProfiler.FLUSH:
+			if (flush == null) return;
+			flush.end();
+			if (flush.shouldCommit()) {
+				flush.renderCalls = example.batch.renderCalls;
+				flush.drawn = example.drawnFruit;
+				flush.commit();
+			}
+			flush = null;
+			break;
+		case FrameProfiler.LOAD:
+			if (load == null) return;
+			load.end();
+			if (load.shouldCommit()) {
+				load.asset = name;
+				load.commit();
+			}
+			load = null;
+			break;
+		}
+	}
+
+	/** Asks Box2D about every fruit, so this is only done for steps that are recorded. */
+	private static int countAwake (EntityStore fruit) {
+		int awake = 0;
+		Body[] bodies = fruit.bodies;
+		for (int i = 0, n = fruit.size; i < n; i++) {
+			if (bodies[i].isAwake()) awake++;
+		}
+		return awake;
+	}
+}
@@ -0,0 +1,219 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+
+import com.sun.management.HotSpotDiagnosticMXBean;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+/**
+ * Fails when a frame of {@link PhysicsExample} allocates memory once the
+ * fruit has been dropped. On Android every allocation in the frame loop
+ * adds up to a garbage collection pause sooner or later, which shows up as
+ * stutter, so the frame loop must not allocate at all.
+ *
+ * All of {@link PhysicsExample#render()} is run, and after each frame the
+ * world is stepped the way the {@link PhysicsThread} would, but on the same
+ * thread. The example is not threaded, so the bytes allocated by this
+ * thread are the bytes allocated by both. A {@link TraceRecorder} records
+ * every phase, as it would on the desktop.
+ *
+ * Once every fruit has been spawned, fruit that rolled off the ground is
+ * dropped again from the pool, and the pile is left alone until it has come
+ * to rest. A large pile never quite stops jittering, so whatever still moves
+ * after {@link #SETTLE_FRAMES} is put to sleep. This way most of the pile is
+ * asleep and drawn from the {@link QuadCache} while the frames are measured.
+ *
+ * Meanwhile a few restless fruit are kept busy on the other side of a wall,
+ * on a screen wider than usual: every few frames one of them is pushed, and
+ * another one is despawned and spawned again from the pool, so the commands
+ * are covered as well. A restless fruit that rolls off the ground is
+ * despawned by the kill plane instead. So in every measured round fruit is
+ * moved, culled, cached, despawned and pooled.
+ *
+ * The JVM itself allocates a little when code calls a native Box2D method
+ * for the first time, and when that code has been compiled. The warm-up
+ * does everything the measured frames do for long enough that this has
+ * happened before measuring. After that, every one of the {@link #ROUNDS}
+ * measured rounds must come out clean.
+ *
+ * Run it with {@code -XX:-DoEscapeAnalysis}, as the {@code checkAllocations}
+ * build task does. Otherwise the JIT removes many short-lived objects, such
+ * as a copy of a {@code Vector2}, and the check passes although Android,
+ * which does not do this, would allocate them.
+ *
+ * Arguments: optional number of frames to measure, optional amount of fruit.
+ * Exits with 1 if any bytes were allocated, so it can fail a build.
+ */
+public class AllocationCheck extends ApplicationAdapter {
+	static final int DEFAULT_FRAMES = 5000;
+
+	/**
+	 * Frames run with the restless fruit before measuring. Methods that run once per frame are only compiled for
+	 * good after some ten thousand calls, and the JVM allocates while that happens.
+	 */
+	static final int WARMUP_FRAMES = 30000;
+
+	/** Frames to refill the pile after the fruit has been spawned, and the most frames to then wait for it to fall asleep. */
+	static final int SETTLE_FRAMES = 3000;
+
+	/** Every this many frames, one restless fruit is pushed and another one is despawned and spawned again. */
+	static final int COMMAND_INTERVAL = 30;
+
+	/** How many fruit are kept moving on the other side of the wall. */
+	static final int RESTLESS = 3;
+
+	/** Where the restless fruit is dropped, to the right of the {@link #WALL_X wall}. */
+	static final float RESTLESS_X = 220, RESTLESS_Y = 20;
+
+	/**
+	 * Where a wall keeps the pile and the restless fruit apart. Bodies that touch the same static body do not wake
+	 * each other up, so a restless fruit can bump into the wall without waking the pile on the other side.
+	 */
+	static final float WALL_X = 200, WALL_HEIGHT = 60;
+
+	/** A screen four times as wide as usual, so the ground has room for the restless fruit next to the pile. */
+	static final int WIDTH = HeadlessSimulation.WIDTH * 4, HEIGHT = HeadlessSimulation.HEIGHT;
+
+	/** How many rounds of frames are measured. Every one of them must not allocate. */
+	static final int ROUNDS = 3;
+
+	final PhysicsExample example;
+	final int frames;
+	private int exitCode;
+	private int frame;
+
+	/** The ids of the restless fruit, or -1 before they are first spawned. */
+	private final int[] restless = new int[RESTLESS];
+
+	public AllocationCheck (PhysicsExample example, int frames) {
+		this.example = example;
+		this.frames = frames;
+		Arrays.fill(restless, -1);
+	}
+
+	@Override
+	public void create () {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		HotSpotDiagnosticMXBean diagnostics = ManagementFactory.getPlatformMXBean(HotSpotDiagnosticMXBean.class);
+		if (Boolean.parseBoolean(diagnostics.getVMOption("DoEscapeAnalysis").getValue())) {
+			System.out.println("warning: run with -XX:-DoEscapeAnalysis, or allocations the JIT removes go unnoticed");
+		}
+
+		Gdx.gl = Gdx.gl20 = new NoopGL20();
+		example.create();
+		example.resize(WIDTH, HEIGHT);
+		example.setThreaded(false);
+		// hitches are not of interest here, and writing a trace allocates
+		example.profiler.addListener(new TraceRecorder(8192, Gdx.files.local("."), Long.MAX_VALUE));
+
+		createWall();
+
+		// let the pile fill up and come to rest before anything else moves
+		while (!example.spawner.isDone()) step();
+		for (int i = 1; i <= SETTLE_FRAMES; i++) {
+			if (i % COMMAND_INTERVAL == 0) refill();
+			step();
+		}
+		for (int i = 0; i < SETTLE_FRAMES && example.awakeFruit > 0; i++) step();
+		// a large pile keeps jittering and never falls asleep by itself, so
+		// whatever still moves is put to sleep, as a smaller pile would be
+		EntityStore fruit = example.fruit;
+		for (int i = 0; i < fruit.size; i++) fruit.bodies[i].setAwake(false);
+		step();
+		System.out.printf("settled:    %d fruit, %d awake%n", example.fruit.size, example.awakeFruit);
+
+		for (int i = 0; i < WARMUP_FRAMES; i++) frame();
+
+		// whatever measuring itself allocates
+		long overhead = threads.getThreadAllocatedBytes(thread);
+		overhead = threads.getThreadAllocatedBytes(thread) - overhead;
+
+		for (int round = 1; round <= ROUNDS; round++) {
+			long despawned = example.despawnedFruit, recycled = example.pool.recycled, destroyed = example.pool.destroyed;
+			long before = threads.getThreadAllocatedBytes(thread);
+			for (int i = 0; i < frames; i++) frame();
+			long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+
+			System.out.printf("frames:     %d (%d fruit, %d awake, %d drawn, %d cached)%n", frames, example.fruit.size,
+				example.awakeFruit, example.drawnFruit, example.cachedFruit);
+			System.out.printf("pool:       %d despawned, %d recycled, %d destroyed%n", example.despawnedFruit - despawned,
+				example.pool.recycled - recycled, example.pool.destroyed - destroyed);
+			System.out.printf("allocated:  %d bytes (%.1f per frame)%n", allocated, (double)allocated / frames);
+			if (allocated > 0) {
+				System.out.println("FAILED: the frame loop allocates");
+				exitCode = 1;
+			}
+		}
+		Gdx.app.exit();
+	}
+
+	private void createWall () {
+		BodyDef bodyDef = new BodyDef();
+		bodyDef.position.set(WALL_X, 0);
+		PolygonShape shape = new PolygonShape();
+		shape.setAsBox(1, WALL_HEIGHT);
+		example.world.createBody(bodyDef).createFixture(shape, 0);
+		shape.dispose();
+	}
+
+	private void frame () {
+		if (++frame % COMMAND_INTERVAL == 0) command();
+		step();
+	}
+
+	private void step () {
+		example.render();
+		example.updateSpawner(PhysicsExample.STEP_TIME);
+		example.stepWorld(PhysicsExample.STEP_TIME);
+	}
+
+	/**
+	 * Asks for the changes another thread might ask for while the game runs,
+	 * about the restless fruit only. Each one keeps its type, so once it has
+	 * been spawned, its body always comes back from the pool.
+	 */
+	private void command () {
+		int slot = (frame / COMMAND_INTERVAL) % RESTLESS;
+		example.requestImpulse(restless[(slot + 1) % RESTLESS], 0, 10);
+
+		// despawned already if it rolled off the ground
+		if (example.fruit.indexOf(restless[slot]) >= 0) example.requestDestroy(restless[slot]);
+		float x = RESTLESS_X + slot * 2;
+		restless[slot] = example.requestSpawn(slot % example.types.size, x, RESTLESS_Y, 0);
+	}
+
+	/**
+	 * Drops pooled fruit again until the pile is back to its full size. Only
+	 * pooled bodies are used, since creating new ones allocates.
+	 */
+	private void refill () {
+		int missing = example.count - example.fruit.size;
+		int dropped = 0;
+		for (int type = 0; type < example.types.size && dropped < missing; type++) {
+			for (int i = example.pool.getPooled(type); i > 0 && dropped < missing; i--, dropped++) {
+				example.requestSpawn(type, 5 + dropped * 7 % 40, 60 + dropped * 3, 0);
+			}
+		}
+	}
+
+	@Override
+	public void dispose () {
+		example.dispose();
+		System.exit(exitCode);
+	}
+
+	public static void main (String[] arg) {
+		int frames = arg.length > 0 ? Integer.parseInt(arg[0]) : DEFAULT_FRAMES;
+		int count = arg.length > 1 ? Integer.parseInt(arg[1]) : PhysicsExample.COUNT;
+		new HeadlessApplication(new AllocationCheck(new PhysicsExample(count, PhysicsExample.FRUIT_NAMES), frames),
+			new HeadlessApplicationConfiguration());
+	}
+}
@@ -0,0 +1,33 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.physics.box2d.Box2D;
+
+/**
+ * Sets up just enough of libGDX to use {@link PhysicsExample} from code that
+ * does not run inside an application, such as benchmarks. A headless
+ * application is started that never renders, which leaves {@code Gdx.app},
+ * {@code Gdx.files} and {@code Gdx.graphics} behind for the caller to use.
+ * Internal files are resolved against the working directory, so run from the
+ * assets folder.
+ */
+public final class HeadlessEnvironment {
+	private static boolean initialized;
+
+	private HeadlessEnvironment () {
+	}
+
+	public static synchronized void init () {
+		if (initialized) return;
+		HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+		config.updatesPerSecond = -1;
+		new HeadlessApplication(new ApplicationAdapter() {
+		}, config);
+		Gdx.gl = Gdx.gl20 = new NoopGL20();
+		Box2D.init();
+		initialized = true;
+	}
+}
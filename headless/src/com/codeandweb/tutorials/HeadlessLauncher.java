@@ -0,0 +1,19 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+
+// Runs the simulation without a window and prints its throughput. Optional arguments: number of frames, amount of fruit,
+// number of shards. With shards, a wide playfield is simulated by that many worlds in parallel instead.
+public class HeadlessLauncher {
+	public static void main (String[] arg) {
+		int frames = arg.length > 0 ? Integer.parseInt(arg[0]) : HeadlessSimulation.DEFAULT_FRAMES;
+		int count = arg.length > 1 ? Integer.parseInt(arg[1]) : PhysicsExample.COUNT;
+		HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+		if (arg.length > 2) {
+			new HeadlessApplication(new ShardedSimulation(count, Integer.parseInt(arg[2]), frames), config);
+			return;
+		}
+		new HeadlessApplication(new HeadlessSimulation(new PhysicsExample(count, PhysicsExample.FRUIT_NAMES), frames), config);
+	}
+}
@@ -0,0 +1,95 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+
+/**
+ * Drives a {@link PhysicsExample} as fast as the CPU allows. Every frame is
+ * handed exactly {@link PhysicsExample#STEP_TIME} seconds, so each frame does
+ * the fruit spawning, one {@code world.step}, and the body sync and sprite
+ * batching part of {@link PhysicsExample#render()}. When all frames are done
+ * the results are printed and the application exits.
+ *
+ * {@link PhysicsExample#render()} is never called, so the example does not
+ * start its physics thread. Everything runs on this thread, one step at a
+ * time, which keeps the results repeatable.
+ *
+ * Each frame is timed by the example's {@link FrameProfiler}, and the
+ * percentiles of every phase are printed at the end.
+ *
+ * Every frame is stepped and drawn, even once the scene is idle, so the
+ * steps per second measure the simulation itself. Frames that the desktop
+ * would not render because the scene is idle are counted separately, which
+ * shows how much work the idle detection saves there.
+ */
+public class HeadlessSimulation extends ApplicationAdapter {
+	/** One minute of simulated time. */
+	static final int DEFAULT_FRAMES = 3600;
+
+	/** The size of the pretend window, matching the default desktop window. */
+	static final int WIDTH = 640, HEIGHT = 480;
+
+	final PhysicsExample example;
+	final int frames;
+
+	public HeadlessSimulation (PhysicsExample example, int frames) {
+		this.example = example;
+		this.frames = frames;
+	}
+
+	@Override
+	public void create () {
+		Gdx.gl = Gdx.gl20 = new NoopGL20();
+		example.create();
+		example.resize(WIDTH, HEIGHT);
+
+		FrameProfiler profiler = example.profiler;
+		int idle = 0;
+		long start = System.nanoTime();
+		for (int i = 0; i < frames; i++) {
+			if (example.idleGovernor.isIdle()) idle++;
+			long frameStart = profiler.start(FrameProfiler.FRAME);
+			example.updateSpawner(PhysicsExample.STEP_TIME);
+			example.stepWorld(PhysicsExample.STEP_TIME);
+			example.drawFruit();
+			example.updateIdle(PhysicsExample.STEP_TIME);
+			profiler.end(FrameProfiler.FRAME, frameStart);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		double seconds = elapsed / 1e9;
+		double minutes = frames * PhysicsExample.STEP_TIME / 60;
+		System.out.printf("frames:     %d (%d idle, the desktop renders %.0f per simulated minute)%n", frames, idle,
+			(frames - idle) / minutes);
+		System.out.printf("steps:      %d (%d caught up, %d dropped)%n", example.timestep.getSteps(),
+			example.timestep.getCaughtUpSteps(), example.timestep.getDroppedSteps());
+		System.out.printf("bodies:     %d%n", example.world.getBodyCount());
+		System.out.printf("spawned:    %d (%d frames out of room, %d over budget)%n", example.spawner.spawned,
+			example.spawner.blockedFrames, example.spawner.overBudgetFrames);
+		System.out.printf("fruit:      %d live (%d despawned, %d recycled, %d destroyed, %d pooled)%n",
+			example.fruit.size, example.despawnedFruit, example.pool.recycled, example.pool.destroyed,
+			example.pool.getPooled());
+		System.out.printf("drawn:      %d (%d culled, %d cached)%n", example.drawnFruit, example.culledFruit,
+			example.cachedFruit);
+		SolverController solver = example.solver;
+		System.out.printf("solver:     %d velocity, %d position iterations (%d lowered, %d raised, last %.1f us per step)%n",
+			solver.getVelocityIterations(), solver.getPositionIterations(), solver.getLowered(), solver.getRaised(),
+			solver.getAverageNanos() / 1e3);
+		System.out.printf("wall time:  %.3f s%n", seconds);
+		System.out.printf("steps/sec:  %.1f%n", example.timestep.getSteps() / seconds);
+		System.out.printf("%-10s  %9s %9s %9s %9s%n", "us", "p50", "p99", "p99.9", "max");
+		for (int phase : new int[] {FrameProfiler.STEP, FrameProfiler.SYNC, FrameProfiler.FLUSH, FrameProfiler.FRAME}) {
+			Histogram histogram = profiler.get(phase);
+			System.out.printf("%-10s  %9.1f %9.1f %9.1f %9.1f%n", FrameProfiler.NAMES[phase] + ":",
+				histogram.getPercentile(50) / 1e3, histogram.getPercentile(99) / 1e3,
+				histogram.getPercentile(99.9) / 1e3, histogram.getMax() / 1e3);
+		}
+
+		Gdx.app.exit();
+	}
+
+	@Override
+	public void dispose () {
+		example.dispose();
+	}
+}
@@ -0,0 +1,294 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.Transform;
+import com.badlogic.gdx.physics.box2d.World;
+import com.codeandweb.physicseditor.PhysicsShapeCache;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many independent fruit drops and writes down how each one ended, for
+ * comparing solver settings, amounts of fruit and gravity without watching
+ * every run. Every scenario gets a world of its own, and the scenarios are
+ * spread over a thread pool with one thread per core. Each thread runs one
+ * scenario at a time, so nothing is shared between the worlds and the
+ * scenarios per second grow with the number of cores.
+ *
+ * A scenario drops its fruit like the game does, onto a ground as wide as
+ * the narrowest view, and steps until every fruit has fallen asleep or one
+ * simulated minute has passed. Fruit that falls below
+ * {@link PhysicsExample#KILL_PLANE_Y} is removed and counted as lost.
+ *
+ * The scenarios file has one scenario per line: seed, amount of fruit and
+ * gravity in meters per second squared, separated by commas. Empty lines
+ * and lines starting with # are skipped. The results are written as one CSV
+ * line per scenario, in the same order. If a third file is given, the final
+ * position of every fruit is written there, see
+ * {@link #writePositions(DataOutputStream, Result)}.
+ *
+ * Arguments: scenarios file, results file, optional positions file, optional
+ * number of threads.
+ */
+public class ScenarioRunner {
+	/** Steps are cut off after one simulated minute. */
+	static final int MAX_STEPS = 3600;
+
+	/** The width of the ground, matching the narrowest view of the game. */
+	static final float GROUND_WIDTH = 50;
+
+	/** One fruit drop to simulate. */
+	static class Scenario {
+		final int index;
+		final long seed;
+		final int count;
+		final float gravity;
+
+		Scenario (int index, long seed, int count, float gravity) {
+			this.index = index;
+			this.seed = seed;
+			this.count = count;
+			this.gravity = gravity;
+		}
+	}
+
+	/** How a scenario ended. */
+	static class Result {
+		final Scenario scenario;
+
+		/** Whether every fruit fell asleep before {@link #MAX_STEPS}. */
+		boolean settled;
+
+		/** How many steps were taken. */
+		int steps;
+
+		/** How much fruit fell off the ground. */
+		int lost;
+
+		/** The highest point reached by the origin of any remaining fruit, in meters. */
+		float height;
+
+		/** How long the scenario took to run, in nanoseconds. */
+		long nanos;
+
+		/** Type, X, Y and rotation of each remaining fruit, one after the other. */
+		int[] types;
+		float[] positions;
+
+		Result (Scenario scenario) {
+			this.scenario = scenario;
+		}
+	}
+
+	/**
+	 * Creates the bodies from assets/physics.xml. A body factory is not
+	 * thread-safe, so every thread has its own.
+	 */
+	private static final ThreadLocal<BodyFactory> factories = ThreadLocal
+		.withInitial(() -> new BodyFactory(new PhysicsShapeCache("physics.xml")));
+
+	public static void main (String[] arg) throws Exception {
+		if (arg.length < 2) {
+			System.err.println("Usage: ScenarioRunner <scenarios.csv> <results.csv> [positions.bin] [threads]");
+			System.exit(1);
+		}
+		String positionsFile = arg.length > 2 ? arg[2] : null;
+		int threads = arg.length > 3 ? Integer.parseInt(arg[3]) : Runtime.getRuntime().availableProcessors();
+
+		HeadlessEnvironment.init();
+		List<Scenario> scenarios = readScenarios(arg[0]);
+
+		long start = System.nanoTime();
+		List<Result> results = run(scenarios, threads);
+		double seconds = (System.nanoTime() - start) / 1e9;
+
+		writeResults(arg[1], results);
+		if (positionsFile != null) {
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(positionsFile)));
+			try {
+				for (Result result : results) writePositions(out, result);
+			} finally {
+				out.close();
+			}
+		}
+
+		System.out.printf("scenarios:  %d on %d threads%n", scenarios.size(), threads);
+		System.out.printf("wall time:  %.3f s%n", seconds);
+		System.out.printf("per second: %.1f%n", scenarios.size() / seconds);
+		System.exit(0);
+	}
+
+	static List<Scenario> readScenarios (String file) throws IOException {
+		List<Scenario> scenarios = new ArrayList<Scenario>();
+		BufferedReader reader = new BufferedReader(new FileReader(file));
+		try {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.isEmpty() || line.startsWith("#")) continue;
+				String[] fields = line.split(",");
+				if (fields.length != 3) throw new IOException("Expected seed,count,gravity but got: " + line);
+				scenarios.add(new Scenario(scenarios.size(), Long.parseLong(fields[0].trim()),
+					Integer.parseInt(fields[1].trim()), Float.parseFloat(fields[2].trim())));
+			}
+		} finally {
+			reader.close();
+		}
+		return scenarios;
+	}
+
+	/** Runs every scenario and returns the results in the same order. */
+	static List<Result> run (List<Scenario> scenarios, int threads) throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<Result>> futures = new ArrayList<Future<Result>>(scenarios.size());
+			for (final Scenario scenario : scenarios) {
+				futures.add(executor.submit(() -> run(scenario, factories.get())));
+			}
+
+			List<Result> results = new ArrayList<Result>(scenarios.size());
+			for (Future<Result> future : futures) results.add(future.get());
+			return results;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/** Simulates one scenario in a world of its own. */
+	static Result run (Scenario scenario, BodyFactory factory) {
+		Result result = new Result(scenario);
+		long start = System.nanoTime();
+
+		World world = new World(new Vector2(0, -scenario.gravity), true);
+		try {
+			createGround(world);
+
+			// the same drop as the game: random fruit above the screen
+			Random random = new Random(scenario.seed);
+			String[] names = PhysicsExample.FRUIT_NAMES;
+			BodyFactory.Template[] templates = new BodyFactory.Template[names.length];
+			for (int i = 0; i < names.length; i++) {
+				templates[i] = factory.template(names[i], world, PhysicsExample.SCALE, PhysicsExample.SCALE);
+			}
+			// draw the whole drop first, so each kind of fruit is created in one batch
+			int[] counts = new int[templates.length];
+			float[][] transforms = new float[templates.length][scenario.count * 3];
+			for (int i = 0; i < scenario.count; i++) {
+				int type = random.nextInt(templates.length);
+				int t = counts[type]++ * 3;
+				transforms[type][t] = random.nextFloat() * GROUND_WIDTH;
+				transforms[type][t + 1] = random.nextFloat() * 200 + 50;
+			}
+			Body[] bodies = new Body[scenario.count];
+			int[] types = new int[scenario.count];
+			int created = 0;
+			for (int type = 0; type < templates.length; type++) {
+				factory.create(templates[type], world, transforms[type], counts[type], bodies, created);
+				Arrays.fill(types, created, created + counts[type], type);
+				created += counts[type];
+			}
+
+			int size = scenario.count;
+			while (result.steps < MAX_STEPS) {
+				world.step(PhysicsExample.STEP_TIME, PhysicsExample.VELOCITY_ITERATIONS, PhysicsExample.POSITION_ITERATIONS);
+				result.steps++;
+
+				int awake = 0;
+				for (int i = size - 1; i >= 0; i--) {
+					Body body = bodies[i];
+					if (body.getPosition().y < PhysicsExample.KILL_PLANE_Y) {
+						world.destroyBody(body);
+						size--;
+						bodies[i] = bodies[size];
+						types[i] = types[size];
+						result.lost++;
+					} else if (body.isAwake()) {
+						awake++;
+					}
+				}
+				if (awake == 0) {
+					result.settled = true;
+					break;
+				}
+			}
+
+			result.types = new int[size];
+			result.positions = new float[size * 3];
+			for (int i = 0; i < size; i++) {
+				float[] values = bodies[i].getTransform().vals;
+				result.types[i] = types[i];
+				result.positions[i * 3] = values[Transform.POS_X];
+				result.positions[i * 3 + 1] = values[Transform.POS_Y];
+				result.positions[i * 3 + 2] = MathUtils.atan2(values[Transform.SIN], values[Transform.COS]);
+				result.height = Math.max(result.height, values[Transform.POS_Y]);
+			}
+		} finally {
+			world.dispose();
+		}
+
+		result.nanos = System.nanoTime() - start;
+		return result;
+	}
+
+	private static void createGround (World world) {
+		BodyDef bodyDef = new BodyDef();
+		bodyDef.type = BodyDef.BodyType.StaticBody;
+		FixtureDef fixtureDef = new FixtureDef();
+		fixtureDef.friction = 1;
+		PolygonShape shape = new PolygonShape();
+		shape.setAsBox(GROUND_WIDTH, 1);
+		fixtureDef.shape = shape;
+		world.createBody(bodyDef).createFixture(fixtureDef);
+		shape.dispose();
+	}
+
+	static void writeResults (String file, List<Result> results) throws IOException {
+		PrintWriter out = new PrintWriter(file, "UTF-8");
+		try {
+			out.println("scenario,seed,count,gravity,settled,settle_time,lost,height,wall_ms");
+			for (Result result : results) {
+				Scenario scenario = result.scenario;
+				out.printf("%d,%d,%d,%s,%b,%.4f,%d,%.3f,%.3f%n", scenario.index, scenario.seed, scenario.count,
+					scenario.gravity, result.settled, result.steps * PhysicsExample.STEP_TIME, result.lost,
+					result.height, result.nanos / 1e6);
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the final position of every remaining fruit of one scenario,
+	 * big-endian: the scenario's index and the amount of fruit as ints,
+	 * then per fruit its index in {@link PhysicsExample#FRUIT_NAMES} as a
+	 * byte, and X, Y and rotation in radians as floats.
+	 */
+	static void writePositions (DataOutputStream out, Result result) throws IOException {
+		out.writeInt(result.scenario.index);
+		out.writeInt(result.types.length);
+		for (int i = 0; i < result.types.length; i++) {
+			out.writeByte(result.types[i]);
+			out.writeFloat(result.positions[i * 3]);
+			out.writeFloat(result.positions[i * 3 + 1]);
+			out.writeFloat(result.positions[i * 3 + 2]);
+		}
+	}
+}
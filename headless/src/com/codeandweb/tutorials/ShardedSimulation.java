@@ -0,0 +1,93 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Box2D;
+import com.badlogic.gdx.physics.box2d.World;
+import com.codeandweb.physicseditor.PhysicsShapeCache;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Drops fruit onto a wide playfield that is simulated by a
+ * {@link ShardedWorld}, steps it as fast as the CPU allows and prints the
+ * throughput. Run it with different shard counts to see how stepping scales
+ * with the number of cores.
+ *
+ * The bodies are created from assets/physics.xml with a
+ * {@link PhysicsShapeCache}, through a {@link BodyFactory} that also
+ * creates them again whenever they move to another world.
+ */
+public class ShardedSimulation extends ApplicationAdapter {
+	/** The width of the playfield in meters: eight screens side by side. */
+	static final float PLAYFIELD_WIDTH = 400;
+
+	final int count;
+	final int shardCount;
+	final int frames;
+
+	public ShardedSimulation (int count, int shardCount, int frames) {
+		this.count = count;
+		this.shardCount = shardCount;
+		this.frames = frames;
+	}
+
+	@Override
+	public void create () {
+		Box2D.init();
+		PhysicsShapeCache physicsBodies = new PhysicsShapeCache("physics.xml");
+		BodyFactory factory = new BodyFactory(physicsBodies);
+		ForkJoinPool pool = new ForkJoinPool(Math.min(shardCount, Runtime.getRuntime().availableProcessors()));
+		ShardedWorld world = createWorld(factory, pool, count, shardCount, new Random(1));
+
+		long start = System.nanoTime();
+		for (int i = 0; i < frames; i++) {
+			world.step(PhysicsExample.STEP_TIME, PhysicsExample.VELOCITY_ITERATIONS, PhysicsExample.POSITION_ITERATIONS);
+		}
+		long elapsed = System.nanoTime() - start;
+
+		double seconds = elapsed / 1e9;
+		System.out.printf("shards:     %d (%d threads)%n", shardCount, pool.getParallelism());
+		System.out.printf("bodies:     %d (%d awake, %d ghosts)%n", world.size, world.countAwake(), world.getGhostCount());
+		System.out.printf("moved:      %d between worlds, %d ghosts created%n", world.migrations, world.ghostsCreated);
+		System.out.printf("wall time:  %.3f s%n", seconds);
+		System.out.printf("steps/sec:  %.1f%n", frames / seconds);
+
+		world.dispose();
+		factory.dispose();
+		pool.shutdown();
+		Gdx.app.exit();
+	}
+
+	/**
+	 * Builds a playfield {@link #PLAYFIELD_WIDTH} meters wide, cut into
+	 * {@code shardCount} strips, with {@code count} fruit from
+	 * {@link PhysicsExample#FRUIT_NAMES} above it in rows that do not
+	 * overlap.
+	 */
+	static ShardedWorld createWorld (BodyFactory factory, ForkJoinPool pool, int count, int shardCount, Random random) {
+		ShardedWorld world = new ShardedWorld(shardCount, 0, PLAYFIELD_WIDTH, new Vector2(0, -40), factory, pool);
+
+		// the templates need a world to build their prototypes in
+		World scratch = world.shards[0].world;
+		String[] names = PhysicsExample.FRUIT_NAMES;
+		BodyFactory.Template[] templates = new BodyFactory.Template[names.length];
+		float spacing = 0;
+		for (int i = 0; i < names.length; i++) {
+			templates[i] = factory.template(names[i], scratch, PhysicsExample.SCALE, PhysicsExample.SCALE);
+			spacing = Math.max(spacing, ShardedWorld.extent(templates[i]));
+		}
+
+		// a little more than the spacing, so a little jitter still keeps them apart
+		float cell = spacing * 1.1f;
+		int columns = Math.max(1, (int)(PLAYFIELD_WIDTH / cell));
+		for (int i = 0; i < count; i++) {
+			float x = (i % columns) * cell + random.nextFloat() * (cell - spacing);
+			float y = 50 + (i / columns) * cell;
+			world.add(templates[random.nextInt(templates.length)], x, y, 0);
+		}
+		return world;
+	}
+}
@@ -0,0 +1,364 @@
+package com.codeandweb.tutorials;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.CircleShape;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.Shape;
+import com.badlogic.gdx.physics.box2d.Transform;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Disposable;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Simulates one playfield with several Box2D worlds at once. A single
+ * {@link World} only ever uses one core, so the playfield is cut into
+ * vertical strips of equal width, each strip gets a world of its own, and
+ * the worlds are stepped in parallel on a {@link ForkJoinPool}.
+ *
+ * A body belongs to the world of the strip its origin is in. After every
+ * step, bodies that have crossed into another strip are moved there: they
+ * are created again in the new world with the same position and velocity,
+ * and destroyed in the old one.
+ *
+ * Bodies close to a strip's edge could touch bodies in the next strip, which
+ * live in another world. So each of them also gets a ghost in that world: a
+ * kinematic copy that follows it step by step. Bodies in the neighbouring
+ * world bump into the ghost as if it were the real thing. Kinematic bodies
+ * cannot be pushed, so this only works one way: the real body does not feel
+ * the push back until it has crossed over itself. For falling fruit that is
+ * hard to see, but it is not the same as one world.
+ *
+ * This uses {@link ForkJoinPool}, which needs Android 5, so it lives here
+ * rather than in core.
+ */
+public class ShardedWorld implements Disposable {
+	/** Position, rotation, velocity and angular velocity of each body. */
+	static final int STATE = 6;
+
+	private static final int X = 0, Y = 1, ANGLE = 2, VX = 3, VY = 4, OMEGA = 5;
+
+	/** How far past the edge of its strip a body has to go before it is moved, in meters. */
+	static final float HYSTERESIS = 0.5f;
+
+	/** One strip of the playfield, and the world that simulates it. */
+	final class Shard extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final World world;
+		final float left, right;
+
+		/** The bodies this world owns. */
+		int[] owned = new int[16];
+		int ownedCount;
+
+		/** How many ghosts this world holds. */
+		int ghostedCount;
+
+		float stepTime;
+		int velocityIterations, positionIterations;
+
+		Shard (Vector2 gravity, float left, float right) {
+			this.world = new World(gravity, true);
+			this.left = left;
+			this.right = right;
+		}
+
+		@Override
+		protected void compute () {
+			// the ghosts were already placed by rebalance(), since their
+			// state is written by the shards that own their bodies
+			world.step(stepTime, velocityIterations, positionIterations);
+
+			// only this thread writes the state of the bodies this world owns
+			for (int i = 0; i < ownedCount; i++) {
+				int e = owned[i];
+				capture(e, bodies[e]);
+			}
+		}
+	}
+
+	/** Steps every shard and waits for all of them. */
+	private final RecursiveAction stepAll = new RecursiveAction() {
+		@Override
+		protected void compute () {
+			for (Shard shard : shards) shard.reinitialize();
+			ForkJoinTask.invokeAll(shards);
+		}
+	};
+
+	final Shard[] shards;
+	final float left, stripWidth;
+	final ForkJoinPool pool;
+	final BodyFactory factory;
+
+	/** How far from a strip's edge a body has to be to not need a ghost, in meters. */
+	float seam;
+
+	/** How many bodies there are. Each one is identified by its index. */
+	int size;
+	BodyFactory.Template[] templates = new BodyFactory.Template[16];
+	Body[] bodies = new Body[16];
+	int[] owners = new int[16];
+	Body[] ghosts = new Body[16];
+	int[] ghostOwners = new int[16];
+	float[] state = new float[16 * STATE];
+	boolean[] moved = new boolean[16];
+
+	/** Whether bodies were added since the shards' lists were last sorted out. */
+	private boolean added;
+
+	/** How many times a body was moved to another world. */
+	long migrations;
+
+	/** How many ghosts were created. */
+	long ghostsCreated;
+
+	/**
+	 * @param shardCount How many strips to cut the playfield into.
+	 * @param left       The left edge of the playfield in meters. Bodies further left belong to the first strip.
+	 * @param right      The right edge of the playfield in meters. Bodies further right belong to the last strip.
+	 * @param gravity    The gravity of every world.
+	 * @param factory    Creates the bodies, also when they move to another world.
+	 * @param pool       Steps the worlds.
+	 */
+	public ShardedWorld (int shardCount, float left, float right, Vector2 gravity, BodyFactory factory, ForkJoinPool pool) {
+		this.left = left;
+		this.stripWidth = (right - left) / shardCount;
+		this.factory = factory;
+		this.pool = pool;
+
+		shards = new Shard[shardCount];
+		for (int i = 0; i < shardCount; i++) {
+			shards[i] = new Shard(gravity, left + i * stripWidth, left + (i + 1) * stripWidth);
+			createGround(shards[i].world, left, right);
+		}
+	}
+
+	/** Every world gets the whole ground. Static bodies cost next to nothing. */
+	private static void createGround (World world, float left, float right) {
+		BodyDef bodyDef = new BodyDef();
+		bodyDef.type = BodyDef.BodyType.StaticBody;
+		bodyDef.position.set((left + right) / 2, 0);
+		FixtureDef fixtureDef = new FixtureDef();
+		fixtureDef.friction = 1;
+		PolygonShape shape = new PolygonShape();
+		shape.setAsBox((right - left) / 2, 1);
+		fixtureDef.shape = shape;
+		world.createBody(bodyDef).createFixture(fixtureDef);
+		shape.dispose();
+	}
+
+	/**
+	 * Adds a body to the world of the strip it starts in.
+	 *
+	 * @return The index of the body.
+	 */
+	public int add (BodyFactory.Template template, float x, float y, float angle) {
+		if (size == bodies.length) grow(size * 2);
+
+		// a ghost is needed as soon as the body could reach across the edge
+		seam = Math.max(seam, extent(template));
+
+		int e = size++;
+		int owner = shardOf(x);
+		templates[e] = template;
+		owners[e] = owner;
+		ghostOwners[e] = -1;
+		bodies[e] = factory.create(template, shards[owner].world, x, y, angle);
+		capture(e, bodies[e]);
+		added = true;
+		return e;
+	}
+
+	/**
+	 * Steps every world once, in parallel, then moves bodies that crossed
+	 * into another strip and updates the ghosts.
+	 */
+	public void step (float stepTime, int velocityIterations, int positionIterations) {
+		if (added) rebalance();
+
+		for (Shard shard : shards) {
+			shard.stepTime = stepTime;
+			shard.velocityIterations = velocityIterations;
+			shard.positionIterations = positionIterations;
+		}
+		stepAll.reinitialize();
+		pool.invoke(stepAll);
+
+		rebalance();
+	}
+
+	/**
+	 * Goes through every body on this thread, while no world is stepping:
+	 * moves it to the world of the strip it is in now, gives it a ghost in
+	 * the next strip if it is close to the edge or moves its ghost to where
+	 * it ended up, and sorts it into the lists the shards use during the
+	 * next step.
+	 */
+	private void rebalance () {
+		added = false;
+		for (Shard shard : shards) {
+			shard.ownedCount = 0;
+			shard.ghostedCount = 0;
+		}
+
+		for (int e = 0; e < size; e++) {
+			int s = e * STATE;
+			float x = state[s + X];
+
+			int owner = owners[e];
+			Shard shard = shards[owner];
+			if ((x < shard.left - HYSTERESIS && owner > 0) || (x > shard.right + HYSTERESIS && owner < shards.length - 1)) {
+				owner = shardOf(x);
+				migrate(e, owner);
+				shard = shards[owner];
+			}
+
+			int ghostOwner = -1;
+			if (x - shard.left < seam && owner > 0) ghostOwner = owner - 1;
+			else if (shard.right - x < seam && owner < shards.length - 1) ghostOwner = owner + 1;
+			if (ghostOwner != ghostOwners[e]) setGhost(e, ghostOwner);
+			else if (ghostOwner >= 0 && moved[e]) placeGhost(e);
+
+			add(shard, e);
+			if (ghostOwner >= 0) shards[ghostOwner].ghostedCount++;
+		}
+	}
+
+	private void migrate (int e, int owner) {
+		// the ghost may be in the world the body moves to, where it would be in the way
+		setGhost(e, -1);
+
+		int s = e * STATE;
+		Body old = bodies[e];
+		Body body = factory.create(templates[e], shards[owner].world, state[s + X], state[s + Y], state[s + ANGLE]);
+		body.setLinearVelocity(state[s + VX], state[s + VY]);
+		body.setAngularVelocity(state[s + OMEGA]);
+		old.getWorld().destroyBody(old);
+
+		bodies[e] = body;
+		owners[e] = owner;
+		migrations++;
+	}
+
+	private void setGhost (int e, int ghostOwner) {
+		Body ghost = ghosts[e];
+		if (ghost != null) {
+			ghost.getWorld().destroyBody(ghost);
+			ghosts[e] = null;
+		}
+		ghostOwners[e] = ghostOwner;
+		if (ghostOwner < 0) return;
+
+		int s = e * STATE;
+		ghost = factory.create(templates[e], shards[ghostOwner].world, state[s + X], state[s + Y], state[s + ANGLE]);
+		ghost.setType(BodyDef.BodyType.KinematicBody);
+		ghost.setLinearVelocity(state[s + VX], state[s + VY]);
+		ghost.setAngularVelocity(state[s + OMEGA]);
+		ghosts[e] = ghost;
+		ghostsCreated++;
+	}
+
+	/** Puts the ghost of body {@code e} where the body ended up after the last step. */
+	private void placeGhost (int e) {
+		int s = e * STATE;
+		Body ghost = ghosts[e];
+		ghost.setTransform(state[s + X], state[s + Y], state[s + ANGLE]);
+		ghost.setLinearVelocity(state[s + VX], state[s + VY]);
+		ghost.setAngularVelocity(state[s + OMEGA]);
+	}
+
+	private void capture (int e, Body body) {
+		float[] state = this.state;
+		int s = e * STATE;
+		float[] values = body.getTransform().vals;
+		float x = values[Transform.POS_X], y = values[Transform.POS_Y];
+		float angle = MathUtils.atan2(values[Transform.SIN], values[Transform.COS]);
+		moved[e] = x != state[s + X] || y != state[s + Y] || angle != state[s + ANGLE];
+		state[s + X] = x;
+		state[s + Y] = y;
+		state[s + ANGLE] = angle;
+		Vector2 velocity = body.getLinearVelocity();
+		state[s + VX] = velocity.x;
+		state[s + VY] = velocity.y;
+		state[s + OMEGA] = body.getAngularVelocity();
+	}
+
+	private static void add (Shard shard, int e) {
+		if (shard.ownedCount == shard.owned.length) shard.owned = Arrays.copyOf(shard.owned, shard.ownedCount * 2);
+		shard.owned[shard.ownedCount++] = e;
+	}
+
+	int shardOf (float x) {
+		return MathUtils.clamp((int)Math.floor((x - left) / stripWidth), 0, shards.length - 1);
+	}
+
+	/** @return How far any part of a body made from this template reaches from its origin. */
+	static float extent (BodyFactory.Template template) {
+		float extent = 0;
+		Vector2 vertex = new Vector2();
+		for (FixtureDef fixtureDef : template.fixtureDefs) {
+			Shape shape = fixtureDef.shape;
+			if (shape instanceof PolygonShape) {
+				PolygonShape polygon = (PolygonShape)shape;
+				for (int i = 0; i < polygon.getVertexCount(); i++) {
+					polygon.getVertex(i, vertex);
+					extent = Math.max(extent, vertex.len());
+				}
+			} else if (shape instanceof CircleShape) {
+				CircleShape circle = (CircleShape)shape;
+				extent = Math.max(extent, circle.getPosition().len() + circle.getRadius());
+			}
+		}
+		return extent;
+	}
+
+	/** @return The X position in meters of body {@code e} after the last step. */
+	public float getX (int e) {
+		return state[e * STATE + X];
+	}
+
+	/** @return The Y position in meters of body {@code e} after the last step. */
+	public float getY (int e) {
+		return state[e * STATE + Y];
+	}
+
+	/** @return How many ghosts there are right now. */
+	public int getGhostCount () {
+		int count = 0;
+		for (Shard shard : shards) count += shard.ghostedCount;
+		return count;
+	}
+
+	/** @return How many of the bodies are awake. */
+	public int countAwake () {
+		int awake = 0;
+		for (int e = 0; e < size; e++) {
+			if (bodies[e].isAwake()) awake++;
+		}
+		return awake;
+	}
+
+	private void grow (int capacity) {
+		templates = Arrays.copyOf(templates, capacity);
+		bodies = Arrays.copyOf(bodies, capacity);
+		owners = Arrays.copyOf(owners, capacity);
+		ghosts = Arrays.copyOf(ghosts, capacity);
+		ghostOwners = Arrays.copyOf(ghostOwners, capacity);
+		state = Arrays.copyOf(state, capacity * STATE);
+		moved = Arrays.copyOf(moved, capacity);
+	}
+
+	@Override
+	public void dispose () {
+		for (Shard shard : shards) shard.world.dispose();
+	}
+}